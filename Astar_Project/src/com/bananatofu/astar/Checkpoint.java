@@ -0,0 +1,353 @@
+package com.bananatofu.astar;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * This class keeps a checkpoint file for Program.aStarSearchAlgorithm so an interrupted search can be resumed.
+ *
+ * The A* search is deterministic: its frontier, checkDup and nodeCount after any number of expansions only
+ * depend on which children each expansion kept. Instead of copying the search tree, the checkpoint file
+ * holds one byte per expansion, the mask of the operators whose children were kept. The masks are appended
+ * in segments of INTERVAL expansions, so writing a checkpoint costs one small sequential write and never
+ * walks the frontier or checkDup.
+ *
+ * A resumed search replays the masks: it pops the same com.bananatofu.astar.TreeNode as the interrupted run and only
+ * builds the children that were kept, without generating the rejected duplicates or scanning the frontier.
+ * Every replayed segment is checked against the nodeCount and frontier size recorded with it, and the search
+ * then continues with exactly the state the interrupted run had.
+ *
+ * File layout, as written by DataOutputStream:
+ *   header:  int MAGIC, int VERSION, long initial board, long goal board, UTF heuristicType
+ *   segment: int expansions, byte[expansions] masks, int nodeCount, int frontier size, long CRC32 of the above
+ *
+ * A segment that is cut short or fails its CRC, e.g. because the process died while writing it, ends the
+ * checkpoint and is overwritten by the resumed search. A replay that does not match the recorded search
+ * discards the whole checkpoint, and the search starts again from the root with an empty one.
+ *
+ * @author Neal SHU
+ */
+
+final class Checkpoint implements Closeable {
+    /**
+     * first int of a checkpoint file
+     */
+    static final int MAGIC = 0x41535443;
+    /**
+     * file format version
+     */
+    static final int VERSION = 1;
+    /**
+     * number of expansions in one segment
+     */
+    static final int INTERVAL = 4096;
+
+    /**
+     * path of the checkpoint file
+     */
+    private final Path path;
+    /**
+     * the packed initial board of the search
+     */
+    private final long initial;
+    /**
+     * the packed goal board of the search
+     */
+    private final long goal;
+    /**
+     * the open checkpoint file, or null once it is closed or a write has failed
+     */
+    private RandomAccessFile file;
+    /**
+     * masks read from the file
+     */
+    private final byte[] replay;
+    /**
+     * number of masks replayed so far
+     */
+    private int replayed;
+    /**
+     * for every segment read from the file, the number of masks up to its end, nodeCount and frontier size
+     */
+    private final ArrayList<int[]> marks;
+    /**
+     * index in marks of the next segment to verify
+     */
+    private int nextMark;
+    /**
+     * masks of the segment being recorded
+     */
+    private final byte[] pending = new byte[INTERVAL];
+    /**
+     * number of masks in pending
+     */
+    private int pendingCount;
+
+    /**
+     * Constructor of Checkpoint
+     *
+     * @param   path      path of the checkpoint file
+     * @param   initial   the packed initial board
+     * @param   goal      the packed goal board
+     * @param   file      the checkpoint file, positioned at its end
+     * @param   replay    the masks read from the file
+     * @param   marks     the number of masks, nodeCount and frontier size at the end of every segment read
+     */
+    private Checkpoint(Path path, long initial, long goal, RandomAccessFile file, byte[] replay, ArrayList<int[]> marks) {
+        this.path = path;
+        this.initial = initial;
+        this.goal = goal;
+        this.file = file;
+        this.replay = replay;
+        this.marks = marks;
+    }
+
+    /**
+     * Opens the checkpoint file of a search, reading what an earlier run of the same search recorded.
+     *
+     * A file that belongs to another initial state, goal state or heuristic is replaced. The file is
+     * truncated after its last valid segment, so the new segments follow on from it.
+     *
+     * @param   path             path of the checkpoint file
+     * @param   initial          the packed initial board
+     * @param   goal             the packed goal board
+     * @return  a Checkpoint ready to replay the masks read and record new ones
+     * @throws  IOException      IOException exception
+     */
+    static Checkpoint open(Path path, long initial, long goal) throws IOException {
+
+        byte[] header = header(initial, goal);
+        ByteArrayOutputStream masks = new ByteArrayOutputStream();
+        ArrayList<int[]> marks = new ArrayList<>();
+        long valid = 0;
+        /*
+            read the segments of an earlier run, stopping at the first one that is incomplete or damaged
+         */
+        if (Files.isRegularFile(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                byte[] found = new byte[header.length];
+                in.readFully(found);
+                if (Arrays.equals(found, header)) {
+                    valid = header.length;
+                    while (true) {
+                        int count = in.readInt();
+                        if (count <= 0 || count > INTERVAL) {
+                            break;
+                        }
+                        byte[] segment = new byte[count];
+                        in.readFully(segment);
+                        int nodeCount = in.readInt();
+                        int frontierSize = in.readInt();
+                        byte[] body = segment(segment, count, nodeCount, frontierSize);
+                        if (in.readLong() != crc(body)) {
+                            break;
+                        }
+                        masks.write(segment);
+                        marks.add(new int[]{masks.size(), nodeCount, frontierSize});
+                        valid += body.length + Long.BYTES;
+                    }
+                }
+            } catch (EOFException e) {
+                /*
+                    the file ends inside the header or a segment; keep what was read before it
+                 */
+            }
+        } else if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        if (valid == 0) {
+            marks.clear();
+            masks.reset();
+            file.setLength(0);
+            file.write(header);
+        } else {
+            file.setLength(valid);
+            file.seek(valid);
+        }
+        return new Checkpoint(path, initial, goal, file, masks.toByteArray(), marks);
+    }
+
+    /**
+     * Returns whether there are masks left to replay.
+     *
+     * @return  true if the next expansion should be replayed
+     */
+    boolean replaying() {
+        return replayed < replay.length;
+    }
+
+    /**
+     * Returns the mask of the next expansion to replay; bit op is set if the child of operator op was kept.
+     *
+     * @return  the mask of the next expansion
+     */
+    int nextMask() {
+        return replay[replayed++];
+    }
+
+    /**
+     * Called after every replayed expansion; checks the search against the checkpoint at each segment end.
+     *
+     * @param   nodeCount      the current nodeCount
+     * @param   frontierSize   the current size of the frontier
+     * @return  false if the replayed search does not match the recorded one
+     */
+    boolean verify(int nodeCount, int frontierSize) {
+
+        if (nextMark < marks.size() && marks.get(nextMark)[0] == replayed) {
+            int[] mark = marks.get(nextMark++);
+            return mark[1] == nodeCount && mark[2] == frontierSize;
+        }
+        return true;
+    }
+
+    /**
+     * Closes and deletes a checkpoint file that does not match the search, and opens an empty one in its
+     * place for the search that starts again from the root.
+     *
+     * @return  a Checkpoint with nothing to replay, or null if the new file cannot be created
+     */
+    Checkpoint discard() {
+
+        finish();
+        try {
+            return open(path, initial, goal);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Records an expansion, writing a segment to the file every INTERVAL expansions.
+     *
+     * If the file cannot be written, the error is printed and the search continues without checkpoints.
+     *
+     * @param   mask           the mask of the operators whose children were kept
+     * @param   nodeCount      the current nodeCount
+     * @param   frontierSize   the current size of the frontier
+     */
+    void record(int mask, int nodeCount, int frontierSize) {
+
+        pending[pendingCount++] = (byte) mask;
+        if (pendingCount < INTERVAL) {
+            return;
+        }
+        pendingCount = 0;
+        if (file == null) {
+            return;
+        }
+        try {
+            byte[] body = segment(pending, INTERVAL, nodeCount, frontierSize);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + Long.BYTES);
+            DataOutputStream data = new DataOutputStream(out);
+            data.write(body);
+            data.writeLong(crc(body));
+            file.write(out.toByteArray());
+        } catch (IOException e) {
+            e.printStackTrace();
+            close();
+        }
+    }
+
+    /**
+     * Closes and deletes the checkpoint file once the search has finished.
+     */
+    void finish() {
+
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the checkpoint file, keeping it for a later run.
+     */
+    @Override
+    public void close() {
+
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        file = null;
+    }
+
+    /**
+     * Returns the header of the checkpoint file of a search.
+     *
+     * @param   initial   the packed initial board
+     * @param   goal      the packed goal board
+     * @return  the header bytes
+     */
+    private static byte[] header(long initial, long goal) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(initial);
+            data.writeLong(goal);
+            data.writeUTF(Program.heuristicType);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the bytes of a segment without its CRC.
+     *
+     * @param   masks          the masks of the segment
+     * @param   count          the number of masks
+     * @param   nodeCount      nodeCount at the end of the segment
+     * @param   frontierSize   the frontier size at the end of the segment
+     * @return  the segment bytes
+     */
+    private static byte[] segment(byte[] masks, int count, int nodeCount, int frontierSize) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count + 3 * Integer.BYTES);
+        try (DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(count);
+            data.write(masks, 0, count);
+            data.writeInt(nodeCount);
+            data.writeInt(frontierSize);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the CRC32 of some bytes.
+     *
+     * @param   bytes   the bytes
+     * @return  their CRC32
+     */
+    private static long crc(byte[] bytes) {
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,295 @@
+package com.bananatofu.astar;
+
+import java.util.*;
+
+/**
+ * This class implements frontier A* search with divide-and-conquer solution reconstruction.
+ *
+ * Unlike Program.aStarSearchAlgorithm, no closed list is kept: a node is dropped from memory as soon as
+ * it is expanded. Every open node remembers which operators lead back to neighbors that already generated
+ * it (the used-operator bits), and those operators are never applied again, so an expanded state is never
+ * regenerated. On an undirected graph with a consistent heuristic, which all of Program's heuristics are,
+ * this is enough, so no extra boundary layer has to be stored.
+ *
+ * Since parent pointers are gone, every node at or below a middle depth carries its ancestor on that
+ * middle layer (the relay). When the goal is reached the relay splits the problem into two smaller
+ * problems which are solved the same way until every piece is a single move.
+ *
+ * @author Neal SHU
+ */
+
+final class FrontierSearch {
+
+    private FrontierSearch() {
+    }
+
+    /**
+     * Returns an optimal solution from start to goal with Program.heuristicType, or null if the goal cannot
+     * be reached.
+     *
+     * The node count of the Solution is the number of distinct states generated by the top-level search,
+     * which is the value aStarSearchAlgorithm reports for the same problem; the smaller searches run while
+     * reconstructing the path are not counted.
+     *
+     * @param   start   the packed start board
+     * @param   goal    the packed goal board
+     * @return  the operators of an optimal path and the statistics of the top-level search
+     */
+    static Solution solve(long start, long goal) {
+        return solve(start, goal, Program.heuristicType, SearchMonitor.NONE);
+    }
+
+    /**
+     * Returns an optimal solution from start to goal, or null if the goal cannot be reached.
+     *
+     * This function does not read or write Program's static variables; the only shared state
+     * is the synchronized cache of Heuristic.forGoal, so it may be called from several threads at once.
+     *
+     * @param   start           the packed start board
+     * @param   goal            the packed goal board
+     * @param   heuristicType   the heuristic type, one of Program.MANHATTAN, Program.LINEAR_CONFLICT and
+     *                          Program.WALKING_DISTANCE
+     * @param   monitor         receives the progress of the top-level search and may stop any part of the work
+     * @return  the operators of an optimal path and the statistics of the top-level search
+     */
+    static Solution solve(long start, long goal, String heuristicType, SearchMonitor monitor) {
+
+        if (!PackedBoard.solvable(start, goal)) {
+            return null;
+        }
+        /*
+            run the top-level search; it returns null if the goal cannot be reached
+         */
+        Result result = frontierAStar(start, goal, heuristicType, monitor);
+        if (result == null) {
+            return null;
+        }
+        ArrayList<Integer> operators = new ArrayList<>();
+        if (result.cost > 0) {
+            recover(start, goal, result, heuristicType, operators, SearchMonitor.silent(monitor));
+        }
+        return new Solution(operators, result.generated, result.peak);
+    }
+
+    /**
+     * Returns the length of an optimal path from start to goal without recovering the path itself.
+     *
+     * @param   start           the packed start board
+     * @param   goal            the packed goal board
+     * @param   heuristicType   the heuristic type
+     * @return  the optimal number of moves, or -1 if the goal cannot be reached
+     */
+    static int cost(long start, long goal, String heuristicType) {
+        if (!PackedBoard.solvable(start, goal)) {
+            return -1;
+        }
+        Result result = frontierAStar(start, goal, heuristicType, SearchMonitor.NONE);
+        return result == null ? -1 : result.cost;
+    }
+
+    /**
+     * Appends the operators of an optimal path from start to goal to operators.
+     *
+     * @param   start           the packed start board
+     * @param   goal            the packed goal board
+     * @param   result          the result of a frontier search from start to goal
+     * @param   heuristicType   the heuristic type
+     * @param   operators       an ArrayList the operators are appended to
+     * @param   monitor         may stop the searches
+     */
+    private static void recover(long start, long goal, Result result, String heuristicType,
+                                ArrayList<Integer> operators, SearchMonitor monitor) {
+
+        if (result.cost == 1) {
+            /*
+                a single move; find the operator that turns start into goal
+             */
+            int blank = PackedBoard.blankCell(start);
+            for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+                int target = PackedBoard.TARGETS[blank][op];
+                if (target >= 0 && PackedBoard.slide(start, blank, target) == goal) {
+                    operators.add(op);
+                    return;
+                }
+            }
+            return;
+        }
+        /*
+            solve both halves through the relay; the relay lies strictly between start and goal
+         */
+        long relay = result.relay;
+        Result first = frontierAStar(start, relay, heuristicType, monitor);
+        recover(start, relay, first, heuristicType, operators, monitor);
+        Result second = frontierAStar(relay, goal, heuristicType, monitor);
+        recover(relay, goal, second, heuristicType, operators, monitor);
+    }
+
+    /**
+     * Runs frontier A* from start to goal.
+     *
+     * The frontier is ordered exactly like the one in Program.aStarSearchAlgorithm, and a node whose cost
+     * is improved is pushed again with the outdated copy left in the queue, so ties are broken the same way.
+     *
+     * @param   start           the packed start board
+     * @param   goal            the packed goal board
+     * @param   heuristicType   the heuristic type
+     * @param   monitor         called every SearchMonitor.CHECK_INTERVAL expansions
+     * @return  the cost of an optimal path, the relay on it and the search statistics, or null if the goal
+     *          cannot be reached
+     */
+    private static Result frontierAStar(long start, long goal, String heuristicType, SearchMonitor monitor) {
+
+        Heuristic heuristic = Heuristic.forGoal(goal, heuristicType);
+        /*
+            nodes on the relay layer are this many moves away from start; at least 1 so the relay is never
+            start itself, and at most half the heuristic so it is never the goal of a longer path
+         */
+        int h0 = heuristic.estimate(start);
+        int middle = Math.max(1, h0 / 2);
+        /*
+            open nodes by board; an expanded node is removed and never stored again
+         */
+        HashMap<Long, Node> open = new HashMap<>(32);
+        PriorityQueue<Node> frontier = new PriorityQueue<>(16, Comparator.comparingInt(o -> o.f));
+        Node root = new Node(start, 0, h0, 0, PackedBoard.NONE);
+        open.put(start, root);
+        frontier.add(root);
+        int generated = 1;
+        int peak = 1;
+        int expanded = 0;
+
+        while (!frontier.isEmpty()) {
+            Node current = frontier.poll();
+            /*
+                skip copies that were replaced by a cheaper path or already expanded
+             */
+            if (open.get(current.board) != current) {
+                continue;
+            }
+            if (current.board == goal) {
+                return new Result(current.g, current.relay, generated, peak);
+            }
+            open.remove(current.board);
+            if ((++expanded & (SearchMonitor.CHECK_INTERVAL - 1)) == 0) {
+                monitor.check(current.f, generated, frontier.size());
+            }
+
+            int blank = PackedBoard.blankCell(current.board);
+            long patterns = heuristic.patterns(current.board);
+            for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+                int target = PackedBoard.TARGETS[blank][op];
+                /*
+                    skip impossible moves and moves back to a neighbor that already generated this node
+                 */
+                if (target < 0 || (current.used & (1 << op)) != 0) {
+                    continue;
+                }
+                long childBoard = PackedBoard.slide(current.board, blank, target);
+                int childG = current.g + 1;
+                int backBit = 1 << (op ^ 1);
+                Node existing = open.get(childBoard);
+                if (existing != null && existing.g <= childG) {
+                    /*
+                        repetition confirmed; keep the old node and block the way back to current
+                     */
+                    existing.used |= backBit;
+                    continue;
+                }
+                long relay = childG == middle ? childBoard : (childG > middle ? current.relay : PackedBoard.NONE);
+                int used = existing == null ? backBit : existing.used | backBit;
+                int h = existing != null
+                        ? existing.f - existing.g
+                        : heuristic.estimateChild(current.f - current.g, current.board, patterns, blank, op, childBoard);
+                Node child = new Node(childBoard, childG, h, used, relay);
+                open.put(childBoard, child);
+                frontier.add(child);
+                if (existing == null) {
+                    generated++;
+                }
+            }
+            peak = Math.max(peak, open.size());
+        }
+
+        return null;
+    }
+
+    /**
+     * This class represents an open node of the frontier search
+     */
+    private static final class Node {
+        /**
+         * Constructor of Node
+         *
+         * @param   board   the packed board
+         * @param   g       path cost g(n)
+         * @param   h       heuristic function h(n) value
+         * @param   used    bit op is set if operator op leads back to a node that generated this one
+         * @param   relay   the packed board of the ancestor on the relay layer, or PackedBoard.NONE
+         */
+        Node(long board, int g, int h, int used, long relay) {
+            this.board = board;
+            this.g = g;
+            this.f = g + h;
+            this.used = used;
+            this.relay = relay;
+        }
+
+        /**
+         * the packed board
+         */
+        final long board;
+        /**
+         * path cost g(n)
+         */
+        final int g;
+        /**
+         * f(n) = h(n) + g(n)
+         */
+        final int f;
+        /**
+         * used-operator bits
+         */
+        int used;
+        /**
+         * ancestor on the relay layer
+         */
+        final long relay;
+    }
+
+    /**
+     * This class represents the outcome of one frontier search
+     */
+    private static final class Result {
+        /**
+         * Constructor of Result
+         *
+         * @param   cost        the cost of the optimal path found
+         * @param   relay       the packed board on the relay layer of that path
+         * @param   generated   the number of distinct states generated
+         * @param   peak        the largest number of open nodes held at once
+         */
+        Result(int cost, long relay, int generated, int peak) {
+            this.cost = cost;
+            this.relay = relay;
+            this.generated = generated;
+            this.peak = peak;
+        }
+
+        /**
+         * the cost of the optimal path found
+         */
+        final int cost;
+        /**
+         * the packed board on the relay layer of that path
+         */
+        final long relay;
+        /**
+         * the number of distinct states generated
+         */
+        final int generated;
+        /**
+         * the largest number of open nodes held at once
+         */
+        final int peak;
+    }
+}
@@ -0,0 +1,258 @@
+package com.bananatofu.astar;
+
+/**
+ * This class evaluates the heuristic selected by Program.heuristicType on packed boards.
+ *
+ * An instance holds everything derived from one goal state, so it is built once per goal and reused for
+ * every node of a search. All three heuristics are admissible and consistent:
+ * MANHATTAN is the sum of Manhattan Distances, LINEAR_CONFLICT adds 2 moves for every tile that has to
+ * leave its goal row or column to let another tile of that line pass, and WALKING_DISTANCE is computed by
+ * com.bananatofu.astar.WalkingDistance.
+ *
+ * @author Neal SHU
+ */
+
+final class Heuristic {
+    /**
+     * the instance returned by the last call of forGoal
+     */
+    private static Heuristic last;
+    /**
+     * the packed goal board
+     */
+    final long goal;
+    /**
+     * the heuristic type, one of Program.MANHATTAN, Program.LINEAR_CONFLICT and Program.WALKING_DISTANCE
+     */
+    final String type;
+    /**
+     * the cell index of every tile in the goal state
+     */
+    final int[] goalPos;
+    /**
+     * walking distance tables, or null if type is not Program.WALKING_DISTANCE
+     */
+    final WalkingDistance walk;
+    /**
+     * cellCost[c][tile] is the Manhattan Distance of tile when it is at cell c
+     */
+    final byte[][] cellCost = new byte[PackedBoard.CELLS][PackedBoard.CELLS];
+
+    /**
+     * Constructor of Heuristic
+     *
+     * @param   goal    the packed goal board
+     * @param   type    the heuristic type
+     */
+    Heuristic(long goal, String type) {
+        this.goal = goal;
+        this.type = type;
+        this.goalPos = PackedBoard.positions(goal);
+        this.walk = Program.WALKING_DISTANCE.equals(type) ? new WalkingDistance(goal) : null;
+        for (int cell = 0; cell < PackedBoard.CELLS; cell++) {
+            for (int tile = 1; tile < PackedBoard.CELLS; tile++) {
+                cellCost[cell][tile] = (byte) (Math.abs(cell / Program.COLS - goalPos[tile] / Program.COLS)
+                        + Math.abs(cell % Program.COLS - goalPos[tile] % Program.COLS));
+            }
+        }
+    }
+
+    /**
+     * Returns a Heuristic for the given goal and the current Program.heuristicType.
+     *
+     * @param   goal    the packed goal board
+     * @return  a Heuristic for that goal
+     */
+    static Heuristic forGoal(long goal) {
+        return forGoal(goal, Program.heuristicType);
+    }
+
+    /**
+     * Returns a Heuristic for the given goal and heuristic type.
+     *
+     * The last instance is cached, since all the nodes of a search share the same goal.
+     *
+     * @param   goal    the packed goal board
+     * @param   type    the heuristic type
+     * @return  a Heuristic for that goal
+     */
+    static synchronized Heuristic forGoal(long goal, String type) {
+        if (last == null || last.goal != goal || !last.type.equals(type)) {
+            last = new Heuristic(goal, type);
+        }
+        return last;
+    }
+
+    /**
+     * Returns the h(n) value of the given board.
+     *
+     * @param   board   a packed board
+     * @return  the heuristic function value of the board
+     */
+    int estimate(long board) {
+        if (walk != null) {
+            return walk.estimate(board);
+        }
+        int sumOfManDis = PackedBoard.manhattan(board, goalPos);
+        if (Program.LINEAR_CONFLICT.equals(type)) {
+            return sumOfManDis + linearConflict(board);
+        }
+        return sumOfManDis;
+    }
+
+    /**
+     * Returns what estimateChild needs to know about a parent board besides its h(n) value.
+     *
+     * For WALKING_DISTANCE these are the row and column pattern indices, found with one board scan; the
+     * other heuristics need nothing and get 0. A search calls this once per expansion.
+     *
+     * @param   board   a packed board
+     * @return  the row pattern index in the high 32 bits and the column pattern index in the low 32 bits
+     */
+    long patterns(long board) {
+        if (walk == null) {
+            return 0L;
+        }
+        return ((long) walk.rowIndex(board) << Integer.SIZE) | walk.colIndex(board);
+    }
+
+    /**
+     * Returns the h(n) value of a child board given its parent's.
+     *
+     * No heuristic scans the child board. With the sum of Manhattan Distances only the moved tile changes,
+     * so the child's value is found from the parent's with two table lookups. LINEAR_CONFLICT also
+     * recounts the conflicts of the two lines the tile moves between, the only lines whose conflicts a move
+     * can change. WALKING_DISTANCE follows the pattern links from the parent's pattern indices.
+     *
+     * @param   parentH          the heuristic function value of the parent board
+     * @param   parentBoard      the packed parent board
+     * @param   parentPatterns   the value of patterns(parentBoard)
+     * @param   blank            the cell index of the blank on the parent board
+     * @param   op               the operator applied, see PackedBoard
+     * @param   childBoard       the packed child board
+     * @return  the heuristic function value of the child board
+     */
+    int estimateChild(int parentH, long parentBoard, long parentPatterns, int blank, int op, long childBoard) {
+
+        int target = PackedBoard.TARGETS[blank][op];
+        int tile = PackedBoard.tileAt(parentBoard, target);
+        if (walk != null) {
+            return walk.distance(walk.rowAfter((int) (parentPatterns >>> Integer.SIZE), op, tile),
+                    walk.colAfter((int) parentPatterns, op, tile));
+        }
+        int h = parentH + cellCost[blank][tile] - cellCost[target][tile];
+        if (Program.LINEAR_CONFLICT.equals(type)) {
+            /*
+                a vertical move changes the tiles of two rows and keeps the order within every column;
+                a horizontal move does the same for two columns
+             */
+            int[] line = new int[Math.max(Program.ROWS, Program.COLS)];
+            if (op < 2) {
+                int from = target / Program.COLS;
+                int to = blank / Program.COLS;
+                h += 2 * (rowRemovals(childBoard, from, line) + rowRemovals(childBoard, to, line)
+                        - rowRemovals(parentBoard, from, line) - rowRemovals(parentBoard, to, line));
+            } else {
+                int from = target % Program.COLS;
+                int to = blank % Program.COLS;
+                h += 2 * (colRemovals(childBoard, from, line) + colRemovals(childBoard, to, line)
+                        - colRemovals(parentBoard, from, line) - colRemovals(parentBoard, to, line));
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns the number of extra moves caused by linear conflicts on the given board.
+     *
+     * Two tiles are in linear conflict if they are in the same line, both have that line as their goal
+     * line, and their goal positions are in the opposite order. For every line, each tile that has to leave
+     * it to resolve all its conflicts costs 2 moves.
+     *
+     * @param   board   a packed board
+     * @return  the linear conflict bonus
+     */
+    int linearConflict(long board) {
+
+        int extra = 0;
+        int[] line = new int[Math.max(Program.ROWS, Program.COLS)];
+        for (int row = 0; row < Program.ROWS; row++) {
+            extra += 2 * rowRemovals(board, row, line);
+        }
+        for (int col = 0; col < Program.COLS; col++) {
+            extra += 2 * colRemovals(board, col, line);
+        }
+        return extra;
+    }
+
+    /**
+     * Returns how many tiles have to leave a row to resolve its linear conflicts.
+     *
+     * @param   board   a packed board
+     * @param   row     the row
+     * @param   line    scratch space of at least COLS entries
+     * @return  the number of tiles removed
+     */
+    private int rowRemovals(long board, int row, int[] line) {
+        /*
+            collect the goal columns of the tiles that are in their goal row, from left to right
+         */
+        int size = 0;
+        for (int col = 0; col < Program.COLS; col++) {
+            int tile = PackedBoard.tileAt(board, row * Program.COLS + col);
+            if (tile != 0 && goalPos[tile] / Program.COLS == row) {
+                line[size++] = goalPos[tile] % Program.COLS;
+            }
+        }
+        return removals(line, size);
+    }
+
+    /**
+     * Returns how many tiles have to leave a column to resolve its linear conflicts.
+     *
+     * @param   board   a packed board
+     * @param   col     the column
+     * @param   line    scratch space of at least ROWS entries
+     * @return  the number of tiles removed
+     */
+    private int colRemovals(long board, int col, int[] line) {
+        /*
+            collect the goal rows of the tiles that are in their goal column, from top to bottom
+         */
+        int size = 0;
+        for (int row = 0; row < Program.ROWS; row++) {
+            int tile = PackedBoard.tileAt(board, row * Program.COLS + col);
+            if (tile != 0 && goalPos[tile] % Program.COLS == col) {
+                line[size++] = goalPos[tile] / Program.COLS;
+            }
+        }
+        return removals(line, size);
+    }
+
+    /**
+     * Returns how many tiles have to be removed from a line so the rest are in goal order.
+     *
+     * The tiles that may stay form the longest increasing run of goal positions, so the answer is the line
+     * size minus the length of the longest increasing subsequence; this is the fewest removals, which keeps
+     * the heuristic admissible.
+     *
+     * @param   line   goal positions of the tiles in the line, in their current order
+     * @param   size   number of tiles in line
+     * @return  the number of tiles removed
+     */
+    private static int removals(int[] line, int size) {
+
+        int[] longest = new int[size];
+        int best = 0;
+        for (int i = 0; i < size; i++) {
+            longest[i] = 1;
+            for (int j = 0; j < i; j++) {
+                if (line[j] < line[i]) {
+                    longest[i] = Math.max(longest[i], longest[j] + 1);
+                }
+            }
+            best = Math.max(best, longest[i]);
+        }
+        return size - best;
+    }
+}
@@ -0,0 +1,436 @@
+package com.bananatofu.astar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Workload tool for load-testing the solver.
+ *
+ * generate writes solvable random instances with a given optimal depth in the input file format:
+ *
+ *     generate  dir  count  depth  seed
+ *
+ * replay solves the instances found in a directory again and again with a number of concurrent clients,
+ * optionally at a fixed total rate in requests per second (0 means as fast as possible), and reports the
+ * throughput together with latency and node count percentiles and histograms:
+ *
+ *     replay  dir  clients  rate  requests  target
+ *
+ * target is "api", which calls FrontierSearch.solve directly and can run concurrently, or "file", which
+ * calls Program.executeFromFile. executeFromFile works on Program's static variables, so "file" requests
+ * are run one at a time whatever the number of clients, and their printed output is captured to read N.
+ * A "file" request also writes its output file as executeFromFile always does, and that I/O is part of its
+ * measured latency; the output files go to a temporary directory that is deleted after the replay.
+ *
+ * With a fixed rate every request has a scheduled start time and its latency is measured from that time,
+ * so a slow server is charged for the requests queued behind it.
+ *
+ * @author Neal SHU
+ */
+
+public final class LoadTest {
+    /**
+     * replay target that calls FrontierSearch.solve
+     */
+    public static final String API = "api";
+    /**
+     * replay target that calls Program.executeFromFile
+     */
+    public static final String FILE = "file";
+    /**
+     * percentiles reported by replay
+     */
+    private static final double[] PERCENTILES = {50.0, 99.0, 99.9};
+    /**
+     * a random walk is abandoned after this many times the requested depth
+     */
+    private static final int WALK_LIMIT = 4;
+    /**
+     * the largest optimal depth of any instance of the 3 x 4 puzzle
+     */
+    static final int MAX_DEPTH = 53;
+    /**
+     * randomInstance gives up after this many random walks
+     */
+    private static final int MAX_WALKS = 100000;
+
+    private LoadTest() {
+    }
+
+    /**
+     * MAIN FUNCTION
+     *
+     * @param   args           "generate" or "replay" followed by its arguments, see the class comment
+     * @throws  IOException    IOException exception
+     */
+    public static void main(String[] args) throws IOException {
+
+        try {
+            if (args.length == 5 && "generate".equals(args[0])) {
+                generate(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Long.parseLong(args[4]));
+            } else if (args.length == 6 && "replay".equals(args[0])) {
+                replay(Paths.get(args[1]), Integer.parseInt(args[2]), Double.parseDouble(args[3]),
+                        Integer.parseInt(args[4]), args[5]);
+            } else {
+                System.out.println("usage: generate dir count depth seed");
+                System.out.println("       replay dir clients rate requests " + API + "|" + FILE);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            /*
+                invalid arguments, including numbers that cannot be parsed, or an impossible workload
+             */
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Writes count instances with optimal depth depth into dir as Input1.txt, Input2.txt, ...
+     *
+     * @param   dir            the directory to write to; it is created if needed
+     * @param   count          the number of instances
+     * @param   depth          the optimal number of moves of every instance, from 0 to MAX_DEPTH
+     * @param   seed           the seed of the random generator, so a workload can be reproduced
+     * @throws  IOException    IOException exception
+     */
+    public static void generate(Path dir, int count, int depth, long seed) throws IOException {
+
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be between 0 and " + MAX_DEPTH);
+        }
+        Files.createDirectories(dir);
+        Random random = new Random(seed);
+        for (int i = 1; i <= count; i++) {
+            long[] instance = randomInstance(random, depth);
+            writeInstance(dir.resolve(String.format("Input%d.txt", i)).toFile(), instance[0], instance[1]);
+            System.out.printf("Input%d.txt%n", i);
+        }
+    }
+
+    /**
+     * Returns a random {start, goal} pair of packed boards whose optimal solution has exactly depth moves.
+     *
+     * The goal is a random board and the start is reached from it by a random walk that never undoes its
+     * previous move. Every move changes the parity of the blank's position, so only walks of the same
+     * parity as depth are checked. A walk is solved once it is at least depth moves long and its heuristic
+     * value does not exceed depth; it is extended while it is still too easy and restarted once it is too
+     * hard or too long. Depths close to MAX_DEPTH are very rare, so the search gives up after MAX_WALKS walks.
+     *
+     * @param   random                   the random generator
+     * @param   depth                    the optimal number of moves wanted, from 0 to MAX_DEPTH
+     * @return  a long array holding the packed start and goal boards
+     * @throws  IllegalStateException    if no instance was found within MAX_WALKS walks
+     */
+    static long[] randomInstance(Random random, int depth) {
+
+        for (int walk = 0; walk < MAX_WALKS; walk++) {
+            List<Integer> tiles = new ArrayList<>();
+            for (int tile = 0; tile < PackedBoard.CELLS; tile++) {
+                tiles.add(tile);
+            }
+            Collections.shuffle(tiles, random);
+            long goal = 0L;
+            for (int cell = 0; cell < PackedBoard.CELLS; cell++) {
+                goal |= (long) tiles.get(cell) << (PackedBoard.CELL_BITS * cell);
+            }
+            if (depth == 0) {
+                return new long[]{goal, goal};
+            }
+            Heuristic heuristic = new Heuristic(goal, Program.WALKING_DISTANCE);
+
+            long board = goal;
+            int previous = -1;
+            for (int steps = 1; steps <= WALK_LIMIT * Math.max(depth, 1); steps++) {
+                int blank = PackedBoard.blankCell(board);
+                int op;
+                do {
+                    op = random.nextInt(PackedBoard.OPERATORS);
+                } while (PackedBoard.TARGETS[blank][op] < 0 || (previous >= 0 && op == (previous ^ 1)));
+                board = PackedBoard.slide(board, blank, PackedBoard.TARGETS[blank][op]);
+                previous = op;
+
+                if (steps < depth || (steps - depth) % 2 != 0) {
+                    continue;
+                }
+                if (heuristic.estimate(board) > depth) {
+                    break;
+                }
+                /*
+                    checking the depth of deep instances is much faster with walking distance
+                 */
+                int cost = FrontierSearch.cost(board, goal, Program.WALKING_DISTANCE);
+                if (cost == depth) {
+                    return new long[]{board, goal};
+                }
+                if (cost > depth) {
+                    break;
+                }
+            }
+        }
+        throw new IllegalStateException("no instance of depth " + depth + " found in " + MAX_WALKS + " random walks");
+    }
+
+    /**
+     * Writes one instance in the input file format.
+     *
+     * @param   file           the file to write
+     * @param   start          the packed initial state
+     * @param   goal           the packed goal state
+     * @throws  IOException    IOException exception
+     */
+    static void writeInstance(File file, long start, long goal) throws IOException {
+
+        FileWriter writer = new FileWriter(file);
+        long[] boards = {start, goal};
+        for (int i = 0; i < boards.length; i++) {
+            /*
+                a blank line separates the initial state from the goal state
+             */
+            if (i > 0) {
+                writer.write("\n");
+            }
+            for (int row = 0; row < Program.ROWS; row++) {
+                for (int col = 0; col < Program.COLS; col++) {
+                    writer.write(PackedBoard.tileAt(boards[i], row * Program.COLS + col) + (col < Program.COLS - 1 ? " " : ""));
+                }
+                writer.write("\n");
+            }
+        }
+        writer.close();
+    }
+
+    /**
+     * Reads one instance in the input file format.
+     *
+     * @param   path                     the file to read
+     * @return  a long array holding the packed initial and goal states
+     * @throws  FileNotFoundException    if the file does not exist
+     */
+    static long[] readInstance(Path path) throws FileNotFoundException {
+
+        Scanner scanner = new Scanner(path.toFile());
+        long[] instance = new long[2];
+        for (int board = 0; board < 2; board++) {
+            for (int cell = 0; cell < PackedBoard.CELLS; cell++) {
+                instance[board] |= (long) scanner.nextInt() << (PackedBoard.CELL_BITS * cell);
+            }
+        }
+        scanner.close();
+        return instance;
+    }
+
+    /**
+     * Replays the instances in dir and prints the report.
+     *
+     * @param   dir            the directory that contains the input files
+     * @param   clients        the number of concurrent clients, at least 1
+     * @param   rate           the total number of requests started per second, or 0 for no limit
+     * @param   requests       the total number of requests, at least 1; the instances are used round robin
+     * @param   target         API or FILE
+     * @throws  IOException    IOException exception
+     */
+    public static void replay(Path dir, int clients, double rate, int requests, String target) throws IOException {
+
+        if (clients < 1 || requests < 1 || rate < 0) {
+            throw new IllegalArgumentException("clients and requests must be at least 1 and rate at least 0");
+        }
+        if (!API.equals(target) && !FILE.equals(target)) {
+            throw new IllegalArgumentException("target must be " + API + " or " + FILE);
+        }
+
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().contains("Output"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        if (paths.isEmpty()) {
+            System.out.println("no input files in " + dir);
+            return;
+        }
+        ArrayList<long[]> instances = new ArrayList<>();
+        for (Path path : paths) {
+            instances.add(readInstance(path));
+        }
+        boolean file = FILE.equals(target);
+        /*
+            "file" requests write their output files into a temporary directory
+         */
+        Path outputs = file ? Files.createTempDirectory("loadtest") : null;
+        String programDir = Program.dir;
+        if (file) {
+            Program.dir = outputs.resolve("out").toString();
+            Files.createDirectories(outputs.resolve("out"));
+        }
+        try {
+            run(paths, instances, clients, rate, requests, target, file);
+        } finally {
+            if (file) {
+                Program.dir = programDir;
+                Program.outputFileNum = 1;
+                try (Stream<Path> walk = Files.walk(outputs)) {
+                    for (Path path : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the requests of a replay and prints the report.
+     *
+     * @param   paths       the input files
+     * @param   instances   the packed instances read from paths
+     * @param   clients     the number of concurrent clients
+     * @param   rate        the total number of requests started per second, or 0 for no limit
+     * @param   requests    the total number of requests
+     * @param   target      API or FILE
+     * @param   file        whether target is FILE
+     */
+    private static void run(List<Path> paths, ArrayList<long[]> instances, int clients, double rate, int requests,
+                            String target, boolean file) {
+
+        long[] latencies = new long[requests];
+        long[] nodeCounts = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        long period = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0L;
+        long begin = System.nanoTime();
+
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            threads[c] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    /*
+                        wait for the scheduled start time of request i
+                     */
+                    long scheduled = period > 0 ? begin + i * period : System.nanoTime();
+                    long wait;
+                    while ((wait = scheduled - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    int index = i % instances.size();
+                    nodeCounts[i] = file ? runFile(paths.get(index)) : runApi(instances.get(index));
+                    latencies[i] = System.nanoTime() - scheduled;
+                }
+            }, "client-" + c);
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        System.out.printf("target %s, %d clients, %d instances, %d requests%n", target, clients, instances.size(), requests);
+        System.out.printf("throughput: %.1f requests/s%n", requests / (elapsed / 1e9));
+        System.out.println();
+        System.out.println("latency (microseconds)");
+        report(latencies, TimeUnit.MICROSECONDS.toNanos(1));
+        System.out.println();
+        System.out.println("node count N");
+        report(nodeCounts, 1);
+    }
+
+    /**
+     * Solves one instance with FrontierSearch.solve.
+     *
+     * @param   instance   the packed initial and goal states
+     * @return  the number of nodes generated, or -1 if there is no solution
+     */
+    private static long runApi(long[] instance) {
+        Solution solution = FrontierSearch.solve(instance[0], instance[1]);
+        return solution == null ? -1 : solution.nodeCount;
+    }
+
+    /**
+     * Solves one input file with Program.executeFromFile, one call at a time.
+     *
+     * The output printed by executeFromFile is captured and its node count line is read back. Every request
+     * writes Output1.txt again, so a long replay leaves a single output file behind.
+     *
+     * @param   path   the input file
+     * @return  the node count printed, or -1 if it could not be read
+     */
+    private static long runFile(Path path) {
+
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        synchronized (Program.class) {
+            PrintStream out = System.out;
+            System.setOut(new PrintStream(captured));
+            Program.outputFileNum = 1;
+            try {
+                Program.executeFromFile(path);
+            } finally {
+                System.setOut(out);
+            }
+        }
+        /*
+            the printed lines are: file name, separator, 3 rows, blank, 3 rows, blank, depth, node count, ...
+         */
+        String[] lines = captured.toString().split("\\R");
+        try {
+            return lines.length > 11 ? Long.parseLong(lines[11].trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Prints the count, mean, maximum, percentiles and a power-of-two histogram of the samples.
+     *
+     * @param   samples   the samples; they are sorted in place
+     * @param   unit      every sample is divided by unit before printing
+     */
+    static void report(long[] samples, long unit) {
+
+        Arrays.sort(samples);
+        long sum = 0;
+        for (long sample : samples) {
+            sum += sample;
+        }
+        System.out.printf("count %d  mean %.1f  max %d%n", samples.length,
+                (double) sum / samples.length / unit, samples[samples.length - 1] / unit);
+        for (double percentile : PERCENTILES) {
+            int rank = (int) Math.ceil(percentile / 100.0 * samples.length) - 1;
+            System.out.printf("p%s %d%n", percentile == Math.floor(percentile)
+                    ? String.valueOf((int) percentile) : String.valueOf(percentile).replace(".", ""),
+                    samples[Math.max(rank, 0)] / unit);
+        }
+        /*
+            bucket b holds values in [2^(b-1), 2^b), bucket 0 holds values below 1
+         */
+        int[] buckets = new int[Long.SIZE + 1];
+        for (long sample : samples) {
+            long value = sample / unit;
+            buckets[value < 1 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value)]++;
+        }
+        int largest = Arrays.stream(buckets).max().orElse(1);
+        for (int b = 0; b < buckets.length; b++) {
+            if (buckets[b] == 0) {
+                continue;
+            }
+            long low = b == 0 ? 0 : 1L << (b - 1);
+            int width = (int) Math.ceil(40.0 * buckets[b] / largest);
+            System.out.printf("%12d+ %8d %s%n", low, buckets[b], String.join("", Collections.nCopies(width, "#")));
+        }
+    }
+}
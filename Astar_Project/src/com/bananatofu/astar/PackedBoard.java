@@ -0,0 +1,208 @@
+package com.bananatofu.astar;
+
+import java.util.ArrayList;
+
+/**
+ * This class packs a game board into a single long value.
+ *
+ * Each of the ROWS * COLS cells takes 4 bits, cell (row, col) is stored at cell index row * COLS + col,
+ * and cell index i occupies bits 4 * i to 4 * i + 3. A packed board is always non-negative, so -1 can be
+ * used as a "no board" marker. Operators are numbered in the same order as Program.nextActions,
+ * i.e. 0 = "U", 1 = "D", 2 = "L", 3 = "R", so the reverse of operator op is op ^ 1.
+ *
+ * @author Neal SHU
+ */
+
+final class PackedBoard {
+    /**
+     * number of cells in the game board
+     */
+    static final int CELLS = Program.ROWS * Program.COLS;
+    /**
+     * number of bits used by one cell
+     */
+    static final int CELL_BITS = 4;
+    /**
+     * mask of one cell
+     */
+    static final long CELL_MASK = 0xFL;
+    /**
+     * marker for "no board"
+     */
+    static final long NONE = -1L;
+    /**
+     * number of operators
+     */
+    static final int OPERATORS = 4;
+    /**
+     * operator index to action String, in the order used by Program.nextActions
+     */
+    static final String[] ACTIONS = {Program.UP, Program.DOWN, Program.LEFT, Program.RIGHT};
+    /**
+     * TARGETS[cell][op] is the cell the blank moves to when operator op is applied with the blank at cell,
+     * or -1 if the move is not possible
+     */
+    static final int[][] TARGETS = new int[CELLS][OPERATORS];
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / Program.COLS;
+            int col = cell % Program.COLS;
+            TARGETS[cell][0] = row != Program.TOP_ROW ? cell - Program.COLS : -1;
+            TARGETS[cell][1] = row != Program.BOTTOM_ROW ? cell + Program.COLS : -1;
+            TARGETS[cell][2] = col != Program.LEFTMOST_COL ? cell - 1 : -1;
+            TARGETS[cell][3] = col != Program.RIGHTMOST_COL ? cell + 1 : -1;
+        }
+    }
+
+    private PackedBoard() {
+    }
+
+    /**
+     * Returns the packed form of a two-dimensional state.
+     *
+     * @param   state   a two-dimensional ArrayList that represents a state of the game
+     * @return  a long that represents the same state
+     */
+    static long pack(ArrayList<ArrayList<Integer>> state) {
+
+        long board = 0L;
+        for (int row = 0; row < Program.ROWS; row++) {
+            for (int col = 0; col < Program.COLS; col++) {
+                board |= (long) state.get(row).get(col) << (CELL_BITS * (row * Program.COLS + col));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Returns the two-dimensional form of a packed board.
+     *
+     * @param   board   a packed board
+     * @return  a two-dimensional ArrayList that represents the same state
+     */
+    static ArrayList<ArrayList<Integer>> unpack(long board) {
+
+        ArrayList<ArrayList<Integer>> state = new ArrayList<>();
+        for (int row = 0; row < Program.ROWS; row++) {
+            ArrayList<Integer> local = new ArrayList<>();
+            for (int col = 0; col < Program.COLS; col++) {
+                local.add(tileAt(board, row * Program.COLS + col));
+            }
+            state.add(local);
+        }
+        return state;
+    }
+
+    /**
+     * Returns the tile number stored at the given cell.
+     *
+     * @param   board   a packed board
+     * @param   cell    a cell index
+     * @return  the tile number at that cell
+     */
+    static int tileAt(long board, int cell) {
+        return (int) ((board >>> (CELL_BITS * cell)) & CELL_MASK);
+    }
+
+    /**
+     * Returns the cell index of the blank (the 0 tile).
+     *
+     * @param   board   a packed board
+     * @return  the cell index of the blank, or -1 if there is no blank
+     */
+    static int blankCell(long board) {
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (tileAt(board, cell) == 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the board obtained by sliding the tile at target into the blank at blank.
+     *
+     * @param   board    a packed board
+     * @param   blank    the cell index of the blank
+     * @param   target   the cell index of the tile to slide, as given by TARGETS
+     * @return  the resulting packed board
+     */
+    static long slide(long board, int blank, int target) {
+        long tile = (board >>> (CELL_BITS * target)) & CELL_MASK;
+        return (board & ~(CELL_MASK << (CELL_BITS * target))) | (tile << (CELL_BITS * blank));
+    }
+
+    /**
+     * Returns an array that maps each tile number to its cell index on the given board.
+     *
+     * @param   board   a packed board
+     * @return  an int array indexed by tile number
+     */
+    static int[] positions(long board) {
+
+        int[] positions = new int[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            positions[tileAt(board, cell)] = cell;
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the sum of Manhattan Distances of the given board, the same value as Program.heuristic.
+     *
+     * @param   board     a packed board
+     * @param   goalPos   the cell index of every tile in the goal state, as returned by positions
+     * @return  the sum of Manhattan Distances of all non-blank tiles
+     */
+    static int manhattan(long board, int[] goalPos) {
+
+        int sumOfManDis = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int tile = tileAt(board, cell);
+            if (tile != 0) {
+                sumOfManDis += Math.abs(cell / Program.COLS - goalPos[tile] / Program.COLS)
+                        + Math.abs(cell % Program.COLS - goalPos[tile] % Program.COLS);
+            }
+        }
+        return sumOfManDis;
+    }
+
+    /**
+     * Returns true if goal can be reached from start.
+     *
+     * The board has an even number of columns, so a vertical move takes a tile past an odd number of
+     * other tiles: it flips the parity of the number of inversions and changes the blank's row by one,
+     * while a horizontal move changes neither. The parity of inversions plus blank row therefore never
+     * changes, and two boards are connected exactly when it is the same for both.
+     *
+     * @param   start   a packed board
+     * @param   goal    a packed board
+     * @return  true if goal can be reached from start
+     */
+    static boolean solvable(long start, long goal) {
+        return parity(start) == parity(goal);
+    }
+
+    /**
+     * Returns the parity of the number of inversions plus the row of the blank.
+     *
+     * @param   board   a packed board
+     * @return  0 or 1
+     */
+    private static int parity(long board) {
+
+        int inversions = 0;
+        for (int i = 0; i < CELLS; i++) {
+            int tile = tileAt(board, i);
+            for (int j = i + 1; j < CELLS && tile != 0; j++) {
+                int other = tileAt(board, j);
+                if (other != 0 && other < tile) {
+                    inversions++;
+                }
+            }
+        }
+        return (inversions + blankCell(board) / Program.COLS) % 2;
+    }
+}
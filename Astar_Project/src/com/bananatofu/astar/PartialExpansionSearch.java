@@ -0,0 +1,270 @@
+package com.bananatofu.astar;
+
+import java.util.*;
+
+/**
+ * This class implements Enhanced Partial Expansion A* (EPEA*).
+ *
+ * Every node keeps a stored value F, which starts as its f(n). The frontier is ordered by F, and expanding
+ * a node only generates the children whose f(n) equals the node's F; those are the only children A* could
+ * need before the frontier reaches a larger value. If some children have a larger f(n), the node goes back
+ * into the frontier with F set to the smallest of them, otherwise it is closed. Children whose f(n) is
+ * above the frontier are therefore never generated, counted or stored.
+ *
+ * A move changes f(n) by 1 plus the change in h(n). For the sum of Manhattan Distances that change only
+ * depends on the blank's cell, the operator and the tile that slides, so it is looked up in an
+ * operator-selection table built once per goal and the rejected children are never built at all. The
+ * table only exists for Manhattan Distances: with the linear conflict or walking distance heuristic every
+ * child board is still built and its h(n) updated from the parent's by Heuristic.estimateChild, so
+ * operator selection saves storing the surplus nodes but not evaluating them.
+ *
+ * @author Neal SHU
+ */
+
+final class PartialExpansionSearch {
+
+    private PartialExpansionSearch() {
+    }
+
+    /**
+     * Returns an optimal solution from start to goal with Program.heuristicType, or null if the goal cannot
+     * be reached.
+     *
+     * @param   start   the packed start board
+     * @param   goal    the packed goal board
+     * @return  the operators of an optimal path and the search statistics
+     */
+    static Solution solve(long start, long goal) {
+        return solve(start, goal, Program.heuristicType, SearchMonitor.NONE);
+    }
+
+    /**
+     * Returns an optimal solution from start to goal, or null if the goal cannot be reached.
+     *
+     * This function does not read or write Program's static variables; the only shared state is the
+     * synchronized cache of Heuristic.forGoal, so it may be called from several threads at once.
+     *
+     * @param   start           the packed start board
+     * @param   goal            the packed goal board
+     * @param   heuristicType   the heuristic type, one of Program.MANHATTAN, Program.LINEAR_CONFLICT and
+     *                          Program.WALKING_DISTANCE
+     * @param   monitor         called every SearchMonitor.CHECK_INTERVAL expansions
+     * @return  the operators of an optimal path and the search statistics
+     */
+    static Solution solve(long start, long goal, String heuristicType, SearchMonitor monitor) {
+
+        if (!PackedBoard.solvable(start, goal)) {
+            return null;
+        }
+        Heuristic heuristic = Heuristic.forGoal(goal, heuristicType);
+        /*
+            operator-selection table: osf[blank][op][tile] is the change in f(n) when the tile slides into the
+            blank with operator op; only used with the sum of Manhattan Distances
+         */
+        int[][][] osf = null;
+        if (Program.MANHATTAN.equals(heuristic.type)) {
+            osf = new int[PackedBoard.CELLS][PackedBoard.OPERATORS][PackedBoard.CELLS];
+            for (int blank = 0; blank < PackedBoard.CELLS; blank++) {
+                for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+                    int target = PackedBoard.TARGETS[blank][op];
+                    for (int tile = 1; target >= 0 && tile < PackedBoard.CELLS; tile++) {
+                        osf[blank][op][tile] = 1 + heuristic.cellCost[blank][tile] - heuristic.cellCost[target][tile];
+                    }
+                }
+            }
+        }
+
+        HashMap<Long, Node> nodes = new HashMap<>(32);
+        /*
+            ties are broken in favour of the deeper node, so the last f(n) layer is not searched broadly
+         */
+        PriorityQueue<Entry> frontier = new PriorityQueue<>(16, (a, b) -> a.stored != b.stored
+                ? Integer.compare(a.stored, b.stored)
+                : Integer.compare(b.g, a.g));
+        Node root = new Node(start, 0, heuristic.estimate(start), null, -1);
+        nodes.put(start, root);
+        frontier.add(new Entry(root));
+        /*
+            number of open nodes, i.e. nodes with a valid frontier entry; stale entries are not counted
+         */
+        int openCount = 1;
+        int peak = 1;
+        int expanded = 0;
+        int[] deltas = new int[PackedBoard.OPERATORS];
+        long[] children = new long[PackedBoard.OPERATORS];
+
+        while (!frontier.isEmpty()) {
+            Entry entry = frontier.poll();
+            Node current = entry.node;
+            /*
+                skip entries that were replaced by a new stored value or by a cheaper path
+             */
+            if (current.closed || entry.stored != current.stored || entry.g != current.g) {
+                continue;
+            }
+            openCount--;
+            if (current.board == goal) {
+                ArrayList<Integer> operators = new ArrayList<>();
+                for (Node curr = current; curr.parent != null; curr = curr.parent) {
+                    operators.add(0, curr.op);
+                }
+                return new Solution(operators, nodes.size(), peak);
+            }
+
+            if ((++expanded & (SearchMonitor.CHECK_INTERVAL - 1)) == 0) {
+                monitor.check(current.stored, nodes.size(), frontier.size());
+            }
+            /*
+                find the change in f(n) of every possible child without storing any of them
+             */
+            int blank = PackedBoard.blankCell(current.board);
+            long patterns = osf != null ? 0 : heuristic.patterns(current.board);
+            for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+                int target = PackedBoard.TARGETS[blank][op];
+                if (target < 0) {
+                    deltas[op] = Integer.MAX_VALUE;
+                } else if (osf != null) {
+                    deltas[op] = osf[blank][op][PackedBoard.tileAt(current.board, target)];
+                } else {
+                    children[op] = PackedBoard.slide(current.board, blank, target);
+                    deltas[op] = 1 + heuristic.estimateChild(current.h, current.board, patterns, blank, op, children[op])
+                            - current.h;
+                }
+            }
+            /*
+                generate the children whose f(n) equals the stored value, and find the next stored value
+             */
+            int wanted = current.stored - current.g - current.h;
+            int next = Integer.MAX_VALUE;
+            for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+                if (deltas[op] == Integer.MAX_VALUE) {
+                    continue;
+                }
+                if (deltas[op] > wanted) {
+                    next = Math.min(next, deltas[op]);
+                    continue;
+                }
+                if (deltas[op] < wanted) {
+                    continue;
+                }
+                long childBoard = osf != null
+                        ? PackedBoard.slide(current.board, blank, PackedBoard.TARGETS[blank][op])
+                        : children[op];
+                int childG = current.g + 1;
+                Node child = nodes.get(childBoard);
+                if (child == null) {
+                    child = new Node(childBoard, childG, current.h + deltas[op] - 1, current, op);
+                    nodes.put(childBoard, child);
+                    openCount++;
+                } else if (childG < child.g) {
+                    /*
+                        a cheaper path; the child starts its partial expansion again from its new f(n),
+                        and is open again if it was closed
+                     */
+                    if (child.closed) {
+                        openCount++;
+                    }
+                    child.g = childG;
+                    child.stored = childG + child.h;
+                    child.parent = current;
+                    child.op = op;
+                    child.closed = false;
+                } else {
+                    continue;
+                }
+                frontier.add(new Entry(child));
+            }
+            if (next == Integer.MAX_VALUE) {
+                current.closed = true;
+            } else {
+                current.stored = current.g + current.h + next;
+                frontier.add(new Entry(current));
+                openCount++;
+            }
+            peak = Math.max(peak, openCount);
+        }
+
+        return null;
+    }
+
+    /**
+     * This class represents a node of the EPEA* search tree
+     */
+    private static final class Node {
+        /**
+         * Constructor of Node
+         *
+         * @param   board    the packed board
+         * @param   g        path cost g(n)
+         * @param   h        heuristic function h(n) value
+         * @param   parent   the parent node, or null for the root
+         * @param   op       the operator applied to the parent's board
+         */
+        Node(long board, int g, int h, Node parent, int op) {
+            this.board = board;
+            this.g = g;
+            this.h = h;
+            this.stored = g + h;
+            this.parent = parent;
+            this.op = op;
+        }
+
+        /**
+         * the packed board
+         */
+        final long board;
+        /**
+         * path cost g(n)
+         */
+        int g;
+        /**
+         * heuristic function h(n) value
+         */
+        final int h;
+        /**
+         * stored value F; the f(n) of the children still to be generated
+         */
+        int stored;
+        /**
+         * parent node
+         */
+        Node parent;
+        /**
+         * operator applied to the parent's board
+         */
+        int op;
+        /**
+         * whether every child has been generated
+         */
+        boolean closed;
+    }
+
+    /**
+     * This class represents a frontier entry; only the one matching its node's stored value and g is valid
+     */
+    private static final class Entry {
+        /**
+         * Constructor of Entry
+         *
+         * @param   node   the node
+         */
+        Entry(Node node) {
+            this.node = node;
+            this.stored = node.stored;
+            this.g = node.g;
+        }
+
+        /**
+         * the node
+         */
+        final Node node;
+        /**
+         * the node's stored value when the entry was pushed
+         */
+        final int stored;
+        /**
+         * the node's g(n) when the entry was pushed
+         */
+        final int g;
+    }
+}
@@ -8,6 +8,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * @author Neal SHU
@@ -70,6 +71,42 @@ public final class Program {
      * move right
      */
     public static final String RIGHT = "R";
+    /**
+     * plain A* search that keeps every generated state in checkDup
+     */
+    public static final String ASTAR = "astar";
+    /**
+     * frontier A* search that only keeps open states and rebuilds the path by divide and conquer
+     */
+    public static final String FRONTIER = "frontier";
+    /**
+     * one search from the goal shared by all the input files with that goal
+     */
+    public static final String REVERSE_BATCH = "reverseBatch";
+    /**
+     * enhanced partial expansion A* search that only generates the children needed at the current f(n)
+     */
+    public static final String EPEA = "epea";
+    /**
+     * search algorithm used by main and executeFromFile, one of ASTAR, FRONTIER, REVERSE_BATCH and EPEA
+     */
+    public static String searchMode = ASTAR;
+    /**
+     * sum of Manhattan Distances heuristic
+     */
+    public static final String MANHATTAN = "manhattan";
+    /**
+     * sum of Manhattan Distances plus linear conflicts heuristic
+     */
+    public static final String LINEAR_CONFLICT = "linearConflict";
+    /**
+     * walking distance heuristic
+     */
+    public static final String WALKING_DISTANCE = "walkingDistance";
+    /**
+     * heuristic function used by every search, one of MANHATTAN, LINEAR_CONFLICT and WALKING_DISTANCE
+     */
+    public static String heuristicType = MANHATTAN;
     /**
      * directory of the folder that contains all input files
      */
@@ -78,6 +115,11 @@ public final class Program {
      * output file number
      */
     public static int outputFileNum = 1;
+    /**
+     * directory of the checkpoint files of the A* search, or null to search without checkpoints;
+     * a search interrupted with checkpoints on is resumed by the next run on the same input file
+     */
+    public static String checkpointDir = null;
 
     /**
      * MAIN FUNCTION
@@ -89,6 +131,13 @@ public final class Program {
      * @throws  IOException    IOException exception
      */
     public static void main(String[] args) throws IOException {
+        /*
+            in REVERSE_BATCH mode all the input files are solved together
+         */
+        if (REVERSE_BATCH.equals(searchMode)) {
+            executeBatch(Files.walk(Paths.get(dir)).filter(Files::isRegularFile).collect(Collectors.toList()));
+            return;
+        }
         /*
             walk over all the regular files in dir and execute the solver function on each file
          */
@@ -117,35 +166,42 @@ public final class Program {
             /*
                 read the initial state into static variable initialState
              */
-            for (int row = 0; row < ROWS; row++) {
-                ArrayList<Integer> local = new ArrayList<>();
-                for (int col = 0; col < COLS; col++) {
-                    if (scanner.hasNext()) {
-                        local.add(scanner.nextInt());
-                    }
-                }
-                initialState.add(local);
-            }
+            readState(scanner, initialState);
 
             scanner.nextLine();
 
             /*
                 read the goal state into static variable goalState
              */
-            for (int row = 0; row < ROWS; row++) {
-                ArrayList<Integer> local = new ArrayList<>();
-                for (int col = 0; col < COLS; col++) {
-                    if (scanner.hasNext()) {
-                        local.add(scanner.nextInt());
-                    }
-                }
-                goalState.add(local);
-            }
+            readState(scanner, goalState);
 
             /*
                 execute the A* search algorithm and store the solution
              */
-            LinkedList<TreeNode> solution = aStarSearchAlgorithm(initialState, goalState);
+            LinkedList<TreeNode> solution;
+            if (FRONTIER.equals(searchMode)) {
+                solution = solutionPath(initialState,
+                        FrontierSearch.solve(PackedBoard.pack(initialState), PackedBoard.pack(goalState)));
+            } else if (EPEA.equals(searchMode)) {
+                solution = solutionPath(initialState,
+                        PartialExpansionSearch.solve(PackedBoard.pack(initialState), PackedBoard.pack(goalState)));
+            } else if (REVERSE_BATCH.equals(searchMode)) {
+                solution = reverseSearch(new ReverseSearch(PackedBoard.pack(goalState)), initialState);
+            } else {
+                /*
+                    a checkpoint file that cannot be opened is reported and the search runs without one
+                 */
+                Checkpoint checkpoint = null;
+                if (checkpointDir != null) {
+                    try {
+                        checkpoint = Checkpoint.open(Paths.get(checkpointDir, file.getName() + ".ckpt"),
+                                PackedBoard.pack(initialState), PackedBoard.pack(goalState));
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                solution = aStarSearchAlgorithm(initialState, goalState, checkpoint);
+            }
             /*
                 print the solution
              */
@@ -170,6 +226,128 @@ public final class Program {
         }
     }
 
+    /**
+     * This function solves a batch of input files, sharing one search among the files with the same goal.
+     *
+     * All the files are read first and grouped by goal state. For every goal one ReverseSearch settles the
+     * initial states of its group in turn, reusing everything explored for the earlier ones, and is dropped
+     * before the next group starts, so only one search tree is held at a time. The solutions are then
+     * printed and written in the order of paths, exactly as executeFromFile would, with N being the size
+     * of the shared search tree when that initial state was settled.
+     *
+     * @param   paths   a List of Paths of input files
+     */
+    public static void executeBatch(List<Path> paths) {
+
+        ArrayList<ArrayList<ArrayList<Integer>>> starts = new ArrayList<>();
+        ArrayList<ArrayList<ArrayList<Integer>>> goals = new ArrayList<>();
+        /*
+            read every file; files that cannot be read keep null entries and are skipped
+         */
+        for (Path path : paths) {
+            try {
+                Scanner scanner = new Scanner(path.toFile());
+                ArrayList<ArrayList<Integer>> start = new ArrayList<>();
+                ArrayList<ArrayList<Integer>> goal = new ArrayList<>();
+                readState(scanner, start);
+                scanner.nextLine();
+                readState(scanner, goal);
+                starts.add(start);
+                goals.add(goal);
+            } catch (FileNotFoundException ex) {
+                System.out.println("File not found");
+                ex.printStackTrace();
+                starts.add(null);
+                goals.add(null);
+            }
+        }
+        /*
+            group the files by goal, keeping the input order within each group
+         */
+        LinkedHashMap<Long, ArrayList<Integer>> groups = new LinkedHashMap<>(16);
+        for (int i = 0; i < paths.size(); i++) {
+            if (starts.get(i) != null) {
+                groups.computeIfAbsent(PackedBoard.pack(goals.get(i)), goal -> new ArrayList<>()).add(i);
+            }
+        }
+        /*
+            one shared search per group, released before the next group is solved
+         */
+        ArrayList<LinkedList<TreeNode>> solutions = new ArrayList<>(Collections.<LinkedList<TreeNode>>nCopies(paths.size(), null));
+        int[] counts = new int[paths.size()];
+        for (Map.Entry<Long, ArrayList<Integer>> group : groups.entrySet()) {
+            ReverseSearch search = new ReverseSearch(group.getKey());
+            for (int i : group.getValue()) {
+                goalState.addAll(goals.get(i));
+                solutions.set(i, reverseSearch(search, starts.get(i)));
+                counts[i] = nodeCount;
+                goalState.clear();
+                nodeCount = 0;
+            }
+        }
+        /*
+            print and write the solutions in input order
+         */
+        for (int i = 0; i < paths.size(); i++) {
+            if (solutions.get(i) == null) {
+                continue;
+            }
+            try {
+                System.out.printf("File name: %s%n", paths.get(i).toFile().getName());
+                initialState.addAll(starts.get(i));
+                goalState.addAll(goals.get(i));
+                nodeCount = counts[i];
+                printSolution(solutions.get(i));
+                writeSolution(solutions.get(i));
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                initialState.clear();
+                goalState.clear();
+                nodeCount = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads ROWS lines of COLS integers from a Scanner into an empty two-dimensional ArrayList.
+     *
+     * @param   scanner   a Scanner positioned at the first integer of a state
+     * @param   state     an empty two-dimensional ArrayList the state is added to
+     */
+    static void readState(Scanner scanner, ArrayList<ArrayList<Integer>> state) {
+
+        for (int row = 0; row < ROWS; row++) {
+            ArrayList<Integer> local = new ArrayList<>();
+            for (int col = 0; col < COLS; col++) {
+                if (scanner.hasNext()) {
+                    local.add(scanner.nextInt());
+                }
+            }
+            state.add(local);
+        }
+    }
+
+    /**
+     * Returns the solution path of initialState found by a shared ReverseSearch.
+     *
+     * goalState must hold the goal of the search, since the TreeNodes on the path compute their f(n) from
+     * it. nodeCount is set to the size of the shared search tree after initialState is settled.
+     *
+     * @param   search          a ReverseSearch from the goal state
+     * @param   initialState    a two-dimensional ArrayList that represents the initial state of the game
+     * @return  a LinkedList of TreeNodes that contains all the TreeNodes on the optimal solution path
+     */
+    static LinkedList<TreeNode> reverseSearch(ReverseSearch search, ArrayList<ArrayList<Integer>> initialState) {
+
+        ArrayList<Integer> operators = search.settle(PackedBoard.pack(initialState));
+        nodeCount = search.size();
+        if (operators == null) {
+            return new LinkedList<>();
+        }
+        return reconstructPath(initialState, operators);
+    }
+
     /**
      * Returns an integer that represents the current h(n) value of the given state.
      *
@@ -179,11 +357,17 @@ public final class Program {
      * row value and column value from current state to goal state,the Manhattan Distance of a tile is
      * then added to the local variable sumOfManDis.
      *
+     * If heuristicType is LINEAR_CONFLICT or WALKING_DISTANCE, the selected heuristic is evaluated by
+     * com.bananatofu.astar.Heuristic instead.
+     *
      * @param   currState   a two-dimensional ArrayList that represents the current state of the game
      * @param   goalState   a two-dimensional ArrayList that represents the goal state of the game
      * @return  an integer that is the heuristic function value of the current state
      */
     public static Integer heuristic(ArrayList<ArrayList<Integer>> currState, ArrayList<ArrayList<Integer>> goalState) {
+        if (!MANHATTAN.equals(heuristicType)) {
+            return Heuristic.forGoal(PackedBoard.pack(goalState)).estimate(PackedBoard.pack(currState));
+        }
         /*
             countMap stores a tile's tile position
          */
@@ -418,12 +602,14 @@ public final class Program {
             obtain available next actions by calling nextAction
          */
         ArrayList<String> moves = nextActions(root.state);
+        /*
+            with LINEAR_CONFLICT or WALKING_DISTANCE the children's h(n) values are updated from root's
+         */
+        Heuristic incremental = MANHATTAN.equals(heuristicType) ? null : Heuristic.forGoal(PackedBoard.pack(goalState));
+        long board = incremental == null ? 0L : PackedBoard.pack(root.state);
+        long patterns = incremental == null ? 0L : incremental.patterns(board);
         for (String move : moves) {
-            /*
-                obtain child state by calling performAction
-             */
-            ArrayList<ArrayList<Integer>> childState = performAction(root.state, move);
-            TreeNode child = new TreeNode(childState, root, move, null, 1 + root.pathCost);
+            TreeNode child = newChild(root, move, incremental, board, patterns);
             children.add(child);
             /*
                 increment com.bananatofu.astar.TreeNode counter
@@ -440,6 +626,34 @@ public final class Program {
         return children;
     }
 
+    /**
+     * Returns a new child com.bananatofu.astar.TreeNode made by performing an action on root's state.
+     *
+     * If incremental is null the child computes its h(n) value from its state as usual; otherwise the value
+     * is updated from root's by com.bananatofu.astar.Heuristic.estimateChild without evaluating the child state.
+     *
+     * @param   root          the com.bananatofu.astar.TreeNode being expanded
+     * @param   move          the action to perform
+     * @param   incremental   the Heuristic for goalState, or null
+     * @param   board         the packed form of root's state, if incremental is not null
+     * @param   patterns      incremental.patterns(board), if incremental is not null
+     * @return  the child com.bananatofu.astar.TreeNode
+     */
+    private static TreeNode newChild(TreeNode root, String move, Heuristic incremental, long board, long patterns) {
+        /*
+            obtain child state by calling performAction
+         */
+        ArrayList<ArrayList<Integer>> childState = performAction(root.state, move);
+        if (incremental == null) {
+            return new TreeNode(childState, root, move, null, 1 + root.pathCost);
+        }
+        int op = Arrays.asList(PackedBoard.ACTIONS).indexOf(move);
+        int blank = PackedBoard.blankCell(board);
+        long childBoard = PackedBoard.slide(board, blank, PackedBoard.TARGETS[blank][op]);
+        int h = incremental.estimateChild(root.heuristic, board, patterns, blank, op, childBoard);
+        return new TreeNode(childState, root, move, null, 1 + root.pathCost, h);
+    }
+
     /**
      * This static function prints out the solution in the following format:
      * ***************************
@@ -595,6 +809,47 @@ public final class Program {
         return solution;
     }
 
+    /**
+     * Returns the solution path of initialState found by one of the searches on packed boards.
+     *
+     * nodeCount is set to the node count of the Solution.
+     *
+     * @param   initialState    a two-dimensional ArrayList that represents the initial state of the game
+     * @param   found           the Solution found, or null if there is none
+     * @return  a LinkedList of TreeNodes that contains all the TreeNodes on the optimal solution path
+     */
+    static LinkedList<TreeNode> solutionPath(ArrayList<ArrayList<Integer>> initialState, Solution found) {
+
+        if (found == null) {
+            return new LinkedList<>();
+        }
+        nodeCount = found.nodeCount;
+        return reconstructPath(initialState, found.operators);
+    }
+
+    /**
+     * Returns a LinkedList of com.bananatofu.astar.TreeNode that follows the given operators from initialState
+     *
+     * This is used by the searches that do not keep TreeNodes; the TreeNodes are rebuilt along the path so
+     * their f(n) values are computed against goalState as usual.
+     *
+     * @param   initialState    a two-dimensional ArrayList that represents the initial state of the game
+     * @param   operators       the operators of the path, see com.bananatofu.astar.PackedBoard
+     * @return  a LinkedList of TreeNodes that represents the solution path
+     */
+    static LinkedList<TreeNode> reconstructPath(ArrayList<ArrayList<Integer>> initialState, List<Integer> operators) {
+
+        LinkedList<TreeNode> solution = new LinkedList<>();
+        TreeNode curr = new TreeNode(initialState, null, null, null, 0);
+        solution.add(curr);
+        for (int op : operators) {
+            String action = PackedBoard.ACTIONS[op];
+            curr = new TreeNode(performAction(curr.state, action), curr, action, null, curr.pathCost + 1);
+            solution.add(curr);
+        }
+        return solution;
+    }
+
     /**
      * A* ALGORITHM MAIN SOLVER
      *
@@ -619,6 +874,62 @@ public final class Program {
      * @return  a LinkedList of TreeNodes that contains all the TreeNodes on the optimal solution path
      */
     public static LinkedList<TreeNode> aStarSearchAlgorithm(ArrayList<ArrayList<Integer>> initialState, ArrayList<ArrayList<Integer>> goalState) {
+        return aStarSearchAlgorithm(initialState, goalState, null);
+    }
+
+    /**
+     * Returns a LinkedList of com.bananatofu.astar.TreeNode that contains all the TreeNodes on the optimal solution path
+     *
+     * This is aStarSearchAlgorithm with a com.bananatofu.astar.Checkpoint. The expansions recorded by an earlier run are
+     * replayed first, which rebuilds its frontier, checkDup and nodeCount exactly; every later expansion is
+     * recorded. The checkpoint file is deleted once the search has finished, and closed however it ends.
+     *
+     * If the replay does not match the recorded search, the checkpoint is discarded, checkDup and nodeCount
+     * are reset and the search starts again from the root with an empty checkpoint.
+     *
+     * @param   initialState    a two-dimensional ArrayList that represents the initial state of the game
+     * @param   goalState       a two-dimensional ArrayList that represents the goal state of the game
+     * @param   checkpoint      the Checkpoint of this search, or null
+     * @return  a LinkedList of TreeNodes that contains all the TreeNodes on the optimal solution path
+     */
+    static LinkedList<TreeNode> aStarSearchAlgorithm(ArrayList<ArrayList<Integer>> initialState, ArrayList<ArrayList<Integer>> goalState, Checkpoint checkpoint) {
+
+        try {
+            LinkedList<TreeNode> solution = search(initialState, goalState, checkpoint);
+            while (solution == null) {
+                /*
+                    the checkpoint does not match this search; throw it away and search again from the root
+                 */
+                System.out.println("Checkpoint does not match the search, restarting from the initial state");
+                checkDup.clear();
+                nodeCount = 0;
+                checkpoint = checkpoint.discard();
+                solution = search(initialState, goalState, checkpoint);
+            }
+            return solution;
+        } finally {
+            /*
+                close the checkpoint file however the search ends; a finished search has already deleted it
+             */
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        }
+    }
+
+    /**
+     * Returns a LinkedList of com.bananatofu.astar.TreeNode that contains all the TreeNodes on the optimal solution path
+     *
+     * This is the body of aStarSearchAlgorithm, which closes the checkpoint afterwards and starts the
+     * search again when the checkpoint does not match.
+     *
+     * @param   initialState    a two-dimensional ArrayList that represents the initial state of the game
+     * @param   goalState       a two-dimensional ArrayList that represents the goal state of the game
+     * @param   checkpoint      the Checkpoint of this search, or null
+     * @return  a LinkedList of TreeNodes that contains all the TreeNodes on the optimal solution path, or
+     *          null if the replay of checkpoint does not match the recorded search
+     */
+    private static LinkedList<TreeNode> search(ArrayList<ArrayList<Integer>> initialState, ArrayList<ArrayList<Integer>> goalState, Checkpoint checkpoint) {
         /*
             a Priority queue that orders com.bananatofu.astar.TreeNode by comparing their f(n) value;
             com.bananatofu.astar.TreeNode with smallest f(n) value is at the top of this PriorityQueue;
@@ -654,8 +965,24 @@ public final class Program {
                 /*
                     the current node has the goal state; reconstruct the solution path and return
                  */
+                if (checkpoint != null) {
+                    checkpoint.finish();
+                }
                 return reconstructPath(current);
             }
+            /*
+                replay an expansion recorded by an earlier run
+             */
+            if (checkpoint != null && checkpoint.replaying()) {
+                ArrayList<TreeNode> replayed = replayExpansion(current, checkpoint.nextMask());
+                if (replayed != null) {
+                    frontier.addAll(replayed);
+                }
+                if (replayed == null || !checkpoint.verify(nodeCount, frontier.size())) {
+                    return null;
+                }
+                continue;
+            }
             /*
                 expand the current com.bananatofu.astar.TreeNode (duplicates may exist)
              */
@@ -734,15 +1061,98 @@ public final class Program {
                     frontier.add(treeNode);
                 }
             }
+            /*
+                record which children were kept
+             */
+            if (checkpoint != null) {
+                checkpoint.record(operatorMask(goodChild), nodeCount, frontier.size());
+            }
 
         }
 
+        if (checkpoint != null) {
+            checkpoint.finish();
+        }
         /*
             return a empty LinkedList since solution does not exist
          */
         return new LinkedList<>();
     }
 
+    /**
+     * Returns the mask of the operators of the given children.
+     *
+     * @param   children   TreeNodes generated from the same parent
+     * @return  a mask with bit op set for each child made by operator op, see com.bananatofu.astar.PackedBoard
+     */
+    private static int operatorMask(ArrayList<TreeNode> children) {
+
+        int mask = 0;
+        for (TreeNode child : children) {
+            mask |= 1 << Arrays.asList(PackedBoard.ACTIONS).indexOf(child.action);
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the children kept by an expansion recorded in a checkpoint.
+     *
+     * Only the children in mask are generated, in the same order as expand, and checkDup, nodeCount and the
+     * deleted com.bananatofu.astar.TreeNode are updated as aStarSearchAlgorithm did when it kept them. Every kept child
+     * either had a new state or a smaller f(n) value than the com.bananatofu.astar.TreeNode in checkDup, so that one is deleted.
+     *
+     * @param   current   the com.bananatofu.astar.TreeNode being expanded
+     * @param   mask      a mask with bit op set for each child kept, see com.bananatofu.astar.PackedBoard
+     * @return  an ArrayList of the kept child TreeNodes, or null if mask holds a move that is not possible
+     *          or a child aStarSearchAlgorithm would have deleted
+     */
+    private static ArrayList<TreeNode> replayExpansion(TreeNode current, int mask) {
+
+        ArrayList<TreeNode> goodChild = new ArrayList<>();
+        Heuristic incremental = MANHATTAN.equals(heuristicType) ? null : Heuristic.forGoal(PackedBoard.pack(goalState));
+        long board = PackedBoard.pack(current.state);
+        long patterns = incremental == null ? 0L : incremental.patterns(board);
+        /*
+            a mask can only hold moves the blank can make
+         */
+        int blank = PackedBoard.blankCell(board);
+        if ((mask & -(1 << PackedBoard.OPERATORS)) != 0) {
+            return null;
+        }
+        for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+            if (PackedBoard.TARGETS[blank][op] < 0 && (mask & (1 << op)) != 0) {
+                return null;
+            }
+        }
+        for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+            if ((mask & (1 << op)) == 0) {
+                continue;
+            }
+            TreeNode childNode = newChild(current, PackedBoard.ACTIONS[op], incremental, board, patterns);
+            nodeCount++;
+            TreeNode nodeToDelete = checkDup.get(childNode.state);
+            /*
+                a kept duplicate must have replaced a deleted com.bananatofu.astar.TreeNode with a greater f(n) value;
+                the root has no parent and is never replaced
+             */
+            if (nodeToDelete != null && (nodeToDelete.parent == null || childNode.f >= nodeToDelete.f)) {
+                return null;
+            }
+            if (nodeToDelete != null) {
+                nodeToDelete.parent.childArray.remove(nodeToDelete);
+                nodeToDelete.parent = null;
+                nodeCount--;
+            }
+            checkDup.put(childNode.state, childNode);
+            goodChild.add(childNode);
+        }
+        if (goodChild.size() > 0) {
+            current.childArray = new ArrayList<>();
+            current.childArray.addAll(goodChild);
+        }
+        return goodChild;
+    }
+
 }
 
 /**
@@ -784,6 +1194,20 @@ class TreeNode {
      * @param   pathCost      an int that represents the path cost g(n)
      */
     public TreeNode(ArrayList<ArrayList<Integer>> state, TreeNode parent, String action, ArrayList<TreeNode> childArray, int pathCost) {
+        this(state, parent, action, childArray, pathCost, Program.heuristic(state, Program.goalState));
+    }
+
+    /**
+     * Constructor of com.bananatofu.astar.TreeNode with a known heuristic function value
+     *
+     * @param   state         a two-dimensional ArrayList that represents a state of the game
+     * @param   parent        a com.bananatofu.astar.TreeNode which is the parent of the current com.bananatofu.astar.TreeNode
+     * @param   action        a String that represents the action taken from its parent com.bananatofu.astar.TreeNode's state
+     * @param   childArray    a ArrayList of com.bananatofu.astar.TreeNode that represents the children of this com.bananatofu.astar.TreeNode
+     * @param   pathCost      an int that represents the path cost g(n)
+     * @param   heuristic     the heuristic function h(n) value of state
+     */
+    TreeNode(ArrayList<ArrayList<Integer>> state, TreeNode parent, String action, ArrayList<TreeNode> childArray, int pathCost, int heuristic) {
         /*
             copy the state passed in into this.state
          */
@@ -803,7 +1227,7 @@ class TreeNode {
             this.childArray = new ArrayList<>();
             this.childArray.addAll(childArray);
         }
-        this.heuristic = Program.heuristic(this.state, Program.goalState);
+        this.heuristic = heuristic;
         this.pathCost = pathCost;
         this.f = pathCost + heuristic;
     }
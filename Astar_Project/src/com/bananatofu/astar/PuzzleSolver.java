@@ -0,0 +1,242 @@
+package com.bananatofu.astar;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous solver API for embedding the 11-puzzle solver in other programs.
+ *
+ * Unlike Program.executeFromFile, a request takes its states in memory, does no file I/O, prints nothing
+ * and does not use Program's static variables, so any number of requests may run at once. Each request
+ * runs on the solver's Executor and returns a CompletableFuture right away.
+ *
+ * A request with a deadline completes its future with a TimeoutException when the deadline passes, from a
+ * shared timer thread, even if the search has not started yet or is between two checks. A running search
+ * checks its request every SearchMonitor.CHECK_INTERVAL expansions and stops once the future is done,
+ * whether it was cancelled or timed out. A progress listener is called at most every
+ * PROGRESS_INTERVAL_MILLIS milliseconds on the search thread; if it throws a CancellationException the
+ * search stops and the future completes with that exception.
+ *
+ * The heuristic is chosen when the solver is constructed.
+ *
+ * @author Neal SHU
+ */
+
+public final class PuzzleSolver {
+    /**
+     * minimum number of milliseconds between two progress events of a request
+     */
+    public static final long PROGRESS_INTERVAL_MILLIS = 100;
+    /**
+     * the timer that completes requests whose deadline has passed, shared by every solver
+     */
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "PuzzleSolver-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * the Executor the searches run on
+     */
+    private final Executor executor;
+    /**
+     * the search algorithm, Program.EPEA or Program.FRONTIER
+     */
+    private final String searchMode;
+    /**
+     * the heuristic type, Program.MANHATTAN, Program.LINEAR_CONFLICT or Program.WALKING_DISTANCE
+     */
+    private final String heuristicType;
+
+    /**
+     * Constructor of PuzzleSolver that runs EPEA* searches with the sum of Manhattan Distances on the common
+     * ForkJoinPool
+     */
+    public PuzzleSolver() {
+        this(ForkJoinPool.commonPool(), Program.EPEA, Program.MANHATTAN);
+    }
+
+    /**
+     * Constructor of PuzzleSolver
+     *
+     * @param   executor        the Executor the searches run on
+     * @param   searchMode      Program.EPEA for the fewest generated nodes, or Program.FRONTIER for the least memory
+     * @param   heuristicType   Program.MANHATTAN, Program.LINEAR_CONFLICT or Program.WALKING_DISTANCE
+     */
+    public PuzzleSolver(Executor executor, String searchMode, String heuristicType) {
+        if (!Program.EPEA.equals(searchMode) && !Program.FRONTIER.equals(searchMode)) {
+            throw new IllegalArgumentException("searchMode must be " + Program.EPEA + " or " + Program.FRONTIER);
+        }
+        if (!Program.MANHATTAN.equals(heuristicType) && !Program.LINEAR_CONFLICT.equals(heuristicType)
+                && !Program.WALKING_DISTANCE.equals(heuristicType)) {
+            throw new IllegalArgumentException("heuristicType must be " + Program.MANHATTAN + ", "
+                    + Program.LINEAR_CONFLICT + " or " + Program.WALKING_DISTANCE);
+        }
+        this.executor = executor;
+        this.searchMode = searchMode;
+        this.heuristicType = heuristicType;
+    }
+
+    /**
+     * Starts solving a puzzle and returns a CompletableFuture of its result.
+     *
+     * @param   initialState    a two-dimensional ArrayList that represents the initial state of the game
+     * @param   goalState       a two-dimensional ArrayList that represents the goal state of the game
+     * @param   timeoutMillis   the longest time from this call to the result, waiting for the Executor
+     *                          included, or 0 for no limit; must not be negative
+     * @param   listener        receives progress events, or null
+     * @return  a CompletableFuture that completes with the result, with a TimeoutException if the deadline
+     *          passes, or that can be cancelled to stop the search
+     */
+    public CompletableFuture<SolveResult> solve(ArrayList<ArrayList<Integer>> initialState,
+                                                ArrayList<ArrayList<Integer>> goalState,
+                                                long timeoutMillis,
+                                                Consumer<SolveProgress> listener) {
+
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("timeoutMillis must not be negative");
+        }
+        checkState(initialState);
+        checkState(goalState);
+        long start = PackedBoard.pack(initialState);
+        long goal = PackedBoard.pack(goalState);
+        CompletableFuture<SolveResult> future = new CompletableFuture<>();
+        long begin = System.nanoTime();
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        /*
+            complete the future at the deadline, wherever the search is; the timer is dropped once the future
+            completes some other way
+         */
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timer = TIMER.schedule(() -> timeOut(future, timeoutMillis),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, error) -> timer.cancel(false));
+        }
+
+        Runnable task = () -> {
+            if (future.isDone()) {
+                return;
+            }
+            if (timeoutMillis > 0 && System.nanoTime() - deadline >= 0) {
+                timeOut(future, timeoutMillis);
+                return;
+            }
+            long[] lastReport = {begin};
+            SearchMonitor monitor = (fBound, generated, frontierSize) -> {
+                /*
+                    stop if the future was cancelled or timed out; the deadline is checked here too in case
+                    the timer thread is late
+                 */
+                long now = System.nanoTime();
+                if (timeoutMillis > 0 && now - deadline >= 0) {
+                    timeOut(future, timeoutMillis);
+                }
+                if (future.isDone()) {
+                    throw new CancellationException();
+                }
+                if (listener != null && fBound >= 0
+                        && now - lastReport[0] >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MILLIS)) {
+                    lastReport[0] = now;
+                    listener.accept(new SolveProgress(fBound, generated, frontierSize,
+                            TimeUnit.NANOSECONDS.toMillis(now - begin)));
+                }
+            };
+            try {
+                Solution solution = Program.EPEA.equals(searchMode)
+                        ? PartialExpansionSearch.solve(start, goal, heuristicType, monitor)
+                        : FrontierSearch.solve(start, goal, heuristicType, monitor);
+                future.complete(toResult(start, goal, solution, heuristicType));
+            } catch (RuntimeException | Error e) {
+                /*
+                    if the future was cancelled or timed out this does nothing; otherwise the exception, a
+                    CancellationException from the listener included, completes it
+                 */
+                future.completeExceptionally(e);
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Completes a future with a TimeoutException, unless it is already done.
+     *
+     * @param   future          the future of a request
+     * @param   timeoutMillis   the time limit of the request
+     */
+    private static void timeOut(CompletableFuture<SolveResult> future, long timeoutMillis) {
+        future.completeExceptionally(new TimeoutException("no solution within " + timeoutMillis + " ms"));
+    }
+
+    /**
+     * Returns the SolveResult for a Solution, computing the f(n) values along the path.
+     *
+     * @param   start           the packed start board
+     * @param   goal            the packed goal board
+     * @param   solution        the Solution found, or null if there is none
+     * @param   heuristicType   the heuristic type the search used
+     * @return  the SolveResult
+     */
+    private static SolveResult toResult(long start, long goal, Solution solution, String heuristicType) {
+
+        if (solution == null) {
+            return new SolveResult(null, null, 0, 0);
+        }
+        Heuristic heuristic = Heuristic.forGoal(goal, heuristicType);
+        ArrayList<String> actions = new ArrayList<>();
+        ArrayList<Integer> fValues = new ArrayList<>();
+        long board = start;
+        fValues.add(heuristic.estimate(board));
+        for (int op : solution.operators) {
+            int blank = PackedBoard.blankCell(board);
+            board = PackedBoard.slide(board, blank, PackedBoard.TARGETS[blank][op]);
+            actions.add(PackedBoard.ACTIONS[op]);
+            fValues.add(actions.size() + heuristic.estimate(board));
+        }
+        return new SolveResult(actions, fValues, solution.nodeCount, solution.peakOpenSize);
+    }
+
+    /**
+     * Throws an IllegalArgumentException unless state is a ROWS x COLS board holding every tile once.
+     *
+     * @param   state   a two-dimensional ArrayList that represents a state of the game
+     */
+    private static void checkState(ArrayList<ArrayList<Integer>> state) {
+
+        if (state == null || state.size() != Program.ROWS) {
+            throw new IllegalArgumentException("a state must have " + Program.ROWS + " rows");
+        }
+        HashSet<Integer> tiles = new HashSet<>();
+        for (ArrayList<Integer> row : state) {
+            if (row == null || row.size() != Program.COLS) {
+                throw new IllegalArgumentException("a row must have " + Program.COLS + " columns");
+            }
+            for (Integer tile : row) {
+                if (tile == null || tile < 0 || tile >= PackedBoard.CELLS || !tiles.add(tile)) {
+                    throw new IllegalArgumentException("a state must hold every tile from 0 to "
+                            + (PackedBoard.CELLS - 1) + " once");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.bananatofu.astar;
+
+import java.util.*;
+
+/**
+ * This class answers many start states that share one goal with a single search from the goal.
+ *
+ * The puzzle graph is undirected, so a path from the goal to a start read backwards is a path from the
+ * start to the goal. The search tree rooted at the goal is kept for the lifetime of the object. Every
+ * closed node has its optimal distance to the goal and a pointer one move closer to it, and every open
+ * node has the best distance found so far. To settle a new start the open nodes are ordered by
+ * g(n) + h(n), with h(n) the heuristic distance from n to that start, and A* continues until the start is
+ * closed. This is correct for any consistent heuristic: closed distances are exact whatever heuristic
+ * closed them, and the unexplored part of any optimal path always begins at an open node with an exact
+ * distance. A start that was already closed by an earlier query is answered without any search.
+ *
+ * @author Neal SHU
+ */
+
+final class ReverseSearch {
+    /**
+     * the packed goal board
+     */
+    private final long goal;
+    /**
+     * every node generated so far by board
+     */
+    private final HashMap<Long, Node> nodes = new HashMap<>(32);
+    /**
+     * the open nodes, kept across queries
+     */
+    private final ArrayList<Node> open = new ArrayList<>();
+
+    /**
+     * Constructor of ReverseSearch
+     *
+     * @param   goal    the packed goal board shared by every query
+     */
+    ReverseSearch(long goal) {
+        this.goal = goal;
+        Node root = new Node(goal, 0, -1);
+        nodes.put(goal, root);
+        open.add(root);
+    }
+
+    /**
+     * Returns the number of distinct states generated so far, including the goal.
+     *
+     * @return  the size of the search tree
+     */
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns the operators of an optimal path from start to the goal, extending the search if needed.
+     *
+     * @param   start   the packed start board
+     * @return  an ArrayList of operators (see PackedBoard), or null if the goal cannot be reached
+     */
+    ArrayList<Integer> settle(long start) {
+
+        if (!PackedBoard.solvable(start, goal)) {
+            return null;
+        }
+        Node target = nodes.get(start);
+        if (target == null || !target.closed) {
+            extend(start);
+        }
+        /*
+            follow the pointers towards the goal; each one is a move from the start side
+         */
+        ArrayList<Integer> operators = new ArrayList<>();
+        Node curr = nodes.get(start);
+        while (curr.toGoal >= 0) {
+            operators.add(curr.toGoal);
+            int blank = PackedBoard.blankCell(curr.board);
+            curr = nodes.get(PackedBoard.slide(curr.board, blank, PackedBoard.TARGETS[blank][curr.toGoal]));
+        }
+        return operators;
+    }
+
+    /**
+     * Continues A* from the goal, guided towards start, until start is closed.
+     *
+     * @param   start   the packed start board
+     */
+    private void extend(long start) {
+
+        Heuristic heuristic = new Heuristic(start, Program.heuristicType);
+        /*
+            order the open nodes for this start; nodes closed since the last query are dropped
+         */
+        PriorityQueue<Entry> frontier = new PriorityQueue<>(Math.max(16, open.size()), Comparator.comparingInt(o -> o.f));
+        for (Node node : open) {
+            if (!node.closed) {
+                frontier.add(new Entry(node, node.g + heuristic.estimate(node.board)));
+            }
+        }
+        open.clear();
+
+        while (!frontier.isEmpty()) {
+            Entry entry = frontier.poll();
+            Node current = entry.node;
+            /*
+                skip entries whose node was closed or reached by a shorter path since they were pushed
+             */
+            if (current.closed || entry.g != current.g) {
+                continue;
+            }
+            current.closed = true;
+
+            int blank = PackedBoard.blankCell(current.board);
+            long patterns = heuristic.patterns(current.board);
+            for (int op = 0; op < PackedBoard.OPERATORS; op++) {
+                int target = PackedBoard.TARGETS[blank][op];
+                if (target < 0) {
+                    continue;
+                }
+                long childBoard = PackedBoard.slide(current.board, blank, target);
+                Node child = nodes.get(childBoard);
+                if (child == null) {
+                    /*
+                        the move back from the child to current is the reverse operator
+                     */
+                    child = new Node(childBoard, current.g + 1, op ^ 1);
+                    nodes.put(childBoard, child);
+                } else if (!child.closed && current.g + 1 < child.g) {
+                    child.g = current.g + 1;
+                    child.toGoal = op ^ 1;
+                } else {
+                    continue;
+                }
+                int h = heuristic.estimateChild(entry.f - entry.g, current.board, patterns, blank, op, childBoard);
+                frontier.add(new Entry(child, child.g + h));
+            }
+
+            if (current.board == start) {
+                break;
+            }
+        }
+        /*
+            keep what is still open for the next query
+         */
+        for (Entry entry : frontier) {
+            if (!entry.node.closed && entry.g == entry.node.g) {
+                open.add(entry.node);
+            }
+        }
+    }
+
+    /**
+     * This class represents a node of the search tree rooted at the goal
+     */
+    private static final class Node {
+        /**
+         * Constructor of Node
+         *
+         * @param   board    the packed board
+         * @param   g        distance from the goal found so far
+         * @param   toGoal   the operator that moves this board one step closer to the goal, or -1 for the goal
+         */
+        Node(long board, int g, int toGoal) {
+            this.board = board;
+            this.g = g;
+            this.toGoal = toGoal;
+        }
+
+        /**
+         * the packed board
+         */
+        final long board;
+        /**
+         * distance from the goal found so far; exact once closed
+         */
+        int g;
+        /**
+         * the operator that moves this board one step closer to the goal
+         */
+        int toGoal;
+        /**
+         * whether this node has been expanded
+         */
+        boolean closed;
+    }
+
+    /**
+     * This class represents a frontier entry; a node may have several, only the one matching its g is valid
+     */
+    private static final class Entry {
+        /**
+         * Constructor of Entry
+         *
+         * @param   node   the node
+         * @param   f      g(n) + h(n) at the time the entry was pushed
+         */
+        Entry(Node node, int f) {
+            this.node = node;
+            this.g = node.g;
+            this.f = f;
+        }
+
+        /**
+         * the node
+         */
+        final Node node;
+        /**
+         * g(n) at the time the entry was pushed
+         */
+        final int g;
+        /**
+         * g(n) + h(n) at the time the entry was pushed
+         */
+        final int f;
+    }
+}
@@ -0,0 +1,52 @@
+package com.bananatofu.astar;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * This interface lets the caller of a search watch it and stop it.
+ *
+ * The searches on packed boards call check every CHECK_INTERVAL expansions, so a long search can report
+ * its progress and be abandoned without waiting for it to finish.
+ *
+ * @author Neal SHU
+ */
+
+interface SearchMonitor {
+    /**
+     * number of expansions between two calls of check; a power of two
+     */
+    int CHECK_INTERVAL = 1024;
+    /**
+     * a monitor that never stops the search
+     */
+    SearchMonitor NONE = (fBound, generated, frontierSize) -> {
+    };
+
+    /**
+     * Called periodically by a running search.
+     *
+     * A negative fBound means the call only gives the monitor a chance to stop the search and carries no
+     * progress.
+     *
+     * @param   fBound                   the f(n) value of the node being expanded
+     * @param   generated                the number of distinct states generated so far
+     * @param   frontierSize             the number of entries in the frontier
+     * @throws  CancellationException    to stop the search
+     */
+    void check(int fBound, int generated, int frontierSize);
+
+    /**
+     * Returns a monitor that stops a search whenever this one would, but does not receive its progress.
+     *
+     * This is used for the helper searches run while rebuilding a path, whose numbers would be misleading.
+     *
+     * @param   monitor   a monitor
+     * @return  a monitor that forwards every check with -1 in place of the progress values
+     */
+    static SearchMonitor silent(SearchMonitor monitor) {
+        if (monitor == NONE) {
+            return NONE;
+        }
+        return (fBound, generated, frontierSize) -> monitor.check(-1, -1, -1);
+    }
+}
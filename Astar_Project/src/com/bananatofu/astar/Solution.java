@@ -0,0 +1,37 @@
+package com.bananatofu.astar;
+
+import java.util.ArrayList;
+
+/**
+ * This class represents an optimal solution found by one of the searches that work on packed boards
+ *
+ * @author Neal SHU
+ */
+
+final class Solution {
+    /**
+     * Constructor of Solution
+     *
+     * @param   operators      the operators of the path, see PackedBoard
+     * @param   nodeCount      the number of distinct states generated by the top-level search
+     * @param   peakOpenSize   the largest number of open nodes held at once by the top-level search
+     */
+    Solution(ArrayList<Integer> operators, int nodeCount, int peakOpenSize) {
+        this.operators = operators;
+        this.nodeCount = nodeCount;
+        this.peakOpenSize = peakOpenSize;
+    }
+
+    /**
+     * the operators of the path, see PackedBoard
+     */
+    final ArrayList<Integer> operators;
+    /**
+     * the number of distinct states generated by the top-level search
+     */
+    final int nodeCount;
+    /**
+     * the largest number of open nodes held at once by the top-level search
+     */
+    final int peakOpenSize;
+}
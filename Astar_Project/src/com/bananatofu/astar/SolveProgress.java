@@ -0,0 +1,41 @@
+package com.bananatofu.astar;
+
+/**
+ * This class represents a progress event of a running PuzzleSolver request
+ *
+ * @author Neal SHU
+ */
+
+public final class SolveProgress {
+    /**
+     * Constructor of SolveProgress
+     *
+     * @param   fBound           the f(n) value currently being expanded
+     * @param   nodesGenerated   the number of nodes generated so far
+     * @param   frontierSize     the number of entries in the frontier
+     * @param   elapsedMillis    milliseconds since the search started
+     */
+    SolveProgress(int fBound, int nodesGenerated, int frontierSize, long elapsedMillis) {
+        this.fBound = fBound;
+        this.nodesGenerated = nodesGenerated;
+        this.frontierSize = frontierSize;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * the f(n) value currently being expanded; it never exceeds the optimal solution length
+     */
+    public final int fBound;
+    /**
+     * the number of nodes generated so far
+     */
+    public final int nodesGenerated;
+    /**
+     * the number of entries in the frontier
+     */
+    public final int frontierSize;
+    /**
+     * milliseconds since the search started
+     */
+    public final long elapsedMillis;
+}
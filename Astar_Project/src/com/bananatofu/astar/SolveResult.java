@@ -0,0 +1,54 @@
+package com.bananatofu.astar;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents the outcome of a PuzzleSolver request
+ *
+ * @author Neal SHU
+ */
+
+public final class SolveResult {
+    /**
+     * Constructor of SolveResult
+     *
+     * @param   actions        the actions from the initial state to the goal state, or null if there is no solution
+     * @param   fValues        the f(n) values of the states along the solution path, starting with the initial state
+     * @param   nodeCount      the number of nodes generated
+     * @param   peakOpenSize   the largest number of open nodes held at once
+     */
+    SolveResult(List<String> actions, List<Integer> fValues, int nodeCount, int peakOpenSize) {
+        this.solved = actions != null;
+        this.actions = actions == null ? Collections.<String>emptyList() : Collections.unmodifiableList(actions);
+        this.fValues = fValues == null ? Collections.<Integer>emptyList() : Collections.unmodifiableList(fValues);
+        this.depth = actions == null ? -1 : actions.size();
+        this.nodeCount = nodeCount;
+        this.peakOpenSize = peakOpenSize;
+    }
+
+    /**
+     * whether the goal state can be reached from the initial state
+     */
+    public final boolean solved;
+    /**
+     * actions from {"U","D","L","R"} along an optimal solution path; empty if there is no solution
+     */
+    public final List<String> actions;
+    /**
+     * f(n) values along the solution path, one more than there are actions
+     */
+    public final List<Integer> fValues;
+    /**
+     * depth level d of the goal node, or -1 if there is no solution
+     */
+    public final int depth;
+    /**
+     * number of nodes N generated in the search tree
+     */
+    public final int nodeCount;
+    /**
+     * largest number of open nodes held at once, the measure of the search's memory use
+     */
+    public final int peakOpenSize;
+}
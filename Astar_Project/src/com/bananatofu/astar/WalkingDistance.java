@@ -0,0 +1,294 @@
+package com.bananatofu.astar;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class computes the walking distance heuristic for the 3 x 4 board.
+ *
+ * Vertical moves only change which row every tile is in, and horizontal moves only change which column
+ * every tile is in. The row pattern of a board is the number of tiles of each goal row found in each row,
+ * together with the row of the blank; the column pattern is the same for columns. The walking distance is
+ * the number of vertical moves needed to solve the row pattern plus the number of horizontal moves needed
+ * to solve the column pattern, both found by breadth-first search over the patterns.
+ *
+ * The board is not square, so rows (3 lines of 4 cells) and columns (4 lines of 3 cells) need different
+ * tables. A table only depends on the line of the blank in the goal state, so at most 3 row tables and
+ * 4 column tables are ever built, each the first time it is needed. Every table also links each pattern
+ * to the pattern reached by a move, so a child's value is found from its parent's without a board scan.
+ *
+ * @author Neal SHU
+ */
+
+final class WalkingDistance {
+    /**
+     * row tables by the row of the blank in the goal state
+     */
+    private static final Table[] ROW_TABLES = new Table[Program.ROWS];
+    /**
+     * column tables by the column of the blank in the goal state
+     */
+    private static final Table[] COL_TABLES = new Table[Program.COLS];
+    /**
+     * goal row of every tile
+     */
+    private final int[] goalRow = new int[PackedBoard.CELLS];
+    /**
+     * goal column of every tile
+     */
+    private final int[] goalCol = new int[PackedBoard.CELLS];
+    /**
+     * row table for this goal
+     */
+    private final Table rows;
+    /**
+     * column table for this goal
+     */
+    private final Table cols;
+
+    /**
+     * Constructor of WalkingDistance
+     *
+     * @param   goal    the packed goal board
+     */
+    WalkingDistance(long goal) {
+        int[] goalPos = PackedBoard.positions(goal);
+        for (int tile = 0; tile < PackedBoard.CELLS; tile++) {
+            goalRow[tile] = goalPos[tile] / Program.COLS;
+            goalCol[tile] = goalPos[tile] % Program.COLS;
+        }
+        this.rows = rowTable(goalRow[0]);
+        this.cols = colTable(goalCol[0]);
+    }
+
+    /**
+     * Returns the index of the row pattern of the given board.
+     *
+     * @param   board   a packed board
+     * @return  the index of the row pattern
+     */
+    int rowIndex(long board) {
+
+        int[][] counts = new int[Program.ROWS][Program.ROWS];
+        int blank = 0;
+        for (int cell = 0; cell < PackedBoard.CELLS; cell++) {
+            int tile = PackedBoard.tileAt(board, cell);
+            if (tile == 0) {
+                blank = cell / Program.COLS;
+            } else {
+                counts[cell / Program.COLS][goalRow[tile]]++;
+            }
+        }
+        return rows.index.get(Table.key(counts, blank));
+    }
+
+    /**
+     * Returns the index of the column pattern of the given board.
+     *
+     * @param   board   a packed board
+     * @return  the index of the column pattern
+     */
+    int colIndex(long board) {
+
+        int[][] counts = new int[Program.COLS][Program.COLS];
+        int blank = 0;
+        for (int cell = 0; cell < PackedBoard.CELLS; cell++) {
+            int tile = PackedBoard.tileAt(board, cell);
+            if (tile == 0) {
+                blank = cell % Program.COLS;
+            } else {
+                counts[cell % Program.COLS][goalCol[tile]]++;
+            }
+        }
+        return cols.index.get(Table.key(counts, blank));
+    }
+
+    /**
+     * Returns the row pattern index after applying an operator.
+     *
+     * @param   rowIndex   the row pattern index before the move
+     * @param   op         the operator applied (see PackedBoard)
+     * @param   tile       the tile that slides into the blank
+     * @return  the row pattern index after the move
+     */
+    int rowAfter(int rowIndex, int op, int tile) {
+        if (op > 1) {
+            return rowIndex;
+        }
+        return rows.links[rowIndex][op * Program.ROWS + goalRow[tile]];
+    }
+
+    /**
+     * Returns the column pattern index after applying an operator.
+     *
+     * @param   colIndex   the column pattern index before the move
+     * @param   op         the operator applied (see PackedBoard)
+     * @param   tile       the tile that slides into the blank
+     * @return  the column pattern index after the move
+     */
+    int colAfter(int colIndex, int op, int tile) {
+        if (op < 2) {
+            return colIndex;
+        }
+        return cols.links[colIndex][(op - 2) * Program.COLS + goalCol[tile]];
+    }
+
+    /**
+     * Returns the walking distance of a board given its pattern indices.
+     *
+     * @param   rowIndex   the row pattern index
+     * @param   colIndex   the column pattern index
+     * @return  the walking distance
+     */
+    int distance(int rowIndex, int colIndex) {
+        return rows.distance[rowIndex] + cols.distance[colIndex];
+    }
+
+    /**
+     * Returns the walking distance of the given board.
+     *
+     * @param   board   a packed board
+     * @return  the walking distance
+     */
+    int estimate(long board) {
+        return distance(rowIndex(board), colIndex(board));
+    }
+
+    /**
+     * Returns the row table for the given goal blank row, building it on first use.
+     *
+     * @param   blankRow   the row of the blank in the goal state
+     * @return  the row table
+     */
+    private static synchronized Table rowTable(int blankRow) {
+        if (ROW_TABLES[blankRow] == null) {
+            ROW_TABLES[blankRow] = new Table(Program.ROWS, Program.COLS, blankRow);
+        }
+        return ROW_TABLES[blankRow];
+    }
+
+    /**
+     * Returns the column table for the given goal blank column, building it on first use.
+     *
+     * @param   blankCol   the column of the blank in the goal state
+     * @return  the column table
+     */
+    private static synchronized Table colTable(int blankCol) {
+        if (COL_TABLES[blankCol] == null) {
+            COL_TABLES[blankCol] = new Table(Program.COLS, Program.ROWS, blankCol);
+        }
+        return COL_TABLES[blankCol];
+    }
+
+    /**
+     * This class represents the breadth-first search result over the patterns of one direction
+     */
+    private static final class Table {
+        /**
+         * number of bits used by one count in a key
+         */
+        private static final int COUNT_BITS = 3;
+        /**
+         * pattern index by pattern key
+         */
+        final HashMap<Long, Integer> index = new HashMap<>();
+        /**
+         * number of moves needed to solve each pattern
+         */
+        final int[] distance;
+        /**
+         * links[i][dir * lines + group] is the pattern reached from pattern i when a tile of the given goal
+         * group slides from the previous (dir = 0) or next (dir = 1) line into the blank, or -1
+         */
+        final int[][] links;
+
+        /**
+         * Constructor of Table
+         *
+         * @param   lines       number of lines in this direction
+         * @param   lineSize    number of cells in one line
+         * @param   blankLine   the line of the blank in the goal state
+         */
+        Table(int lines, int lineSize, int blankLine) {
+            ArrayList<int[][]> patterns = new ArrayList<>();
+            ArrayList<Integer> blanks = new ArrayList<>();
+            ArrayList<Integer> distances = new ArrayList<>();
+            ArrayList<int[]> linkList = new ArrayList<>();
+            /*
+                the goal pattern has every tile in its own line
+             */
+            int[][] goal = new int[lines][lines];
+            for (int line = 0; line < lines; line++) {
+                goal[line][line] = line == blankLine ? lineSize - 1 : lineSize;
+            }
+            index.put(key(goal, blankLine), 0);
+            patterns.add(goal);
+            blanks.add(blankLine);
+            distances.add(0);
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+            /*
+                breadth-first search; moves are reversible so distances from the goal are distances to it
+             */
+            while (!queue.isEmpty()) {
+                int current = queue.poll();
+                int[][] counts = patterns.get(current);
+                int blank = blanks.get(current);
+                int[] link = new int[2 * lines];
+                for (int dir = 0; dir < 2; dir++) {
+                    int from = dir == 0 ? blank - 1 : blank + 1;
+                    for (int group = 0; group < lines; group++) {
+                        link[dir * lines + group] = -1;
+                        if (from < 0 || from >= lines || counts[from][group] == 0) {
+                            continue;
+                        }
+                        int[][] next = new int[lines][];
+                        for (int line = 0; line < lines; line++) {
+                            next[line] = counts[line].clone();
+                        }
+                        next[from][group]--;
+                        next[blank][group]++;
+                        long nextKey = key(next, from);
+                        Integer nextIndex = index.get(nextKey);
+                        if (nextIndex == null) {
+                            nextIndex = patterns.size();
+                            index.put(nextKey, nextIndex);
+                            patterns.add(next);
+                            blanks.add(from);
+                            distances.add(distances.get(current) + 1);
+                            queue.add(nextIndex);
+                        }
+                        link[dir * lines + group] = nextIndex;
+                    }
+                }
+                linkList.add(link);
+            }
+
+            this.distance = new int[patterns.size()];
+            this.links = new int[patterns.size()][];
+            for (int i = 0; i < patterns.size(); i++) {
+                this.distance[i] = distances.get(i);
+                this.links[i] = linkList.get(i);
+            }
+        }
+
+        /**
+         * Returns the key of a pattern.
+         *
+         * @param   counts   counts[line][group] is the number of tiles of goal line group in line
+         * @param   blank    the line of the blank
+         * @return  a long that identifies the pattern
+         */
+        static long key(int[][] counts, int blank) {
+
+            long key = blank;
+            for (int[] line : counts) {
+                for (int count : line) {
+                    key = (key << COUNT_BITS) | count;
+                }
+            }
+            return key;
+        }
+    }
+}